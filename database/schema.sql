@@ -16,6 +16,7 @@ CREATE TABLE IF NOT EXISTS users (
 CREATE TABLE IF NOT EXISTS `groups` (
     id VARCHAR(50) PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
+    display_currency CHAR(3) NOT NULL DEFAULT 'USD',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_name (name)
@@ -38,6 +39,7 @@ CREATE TABLE IF NOT EXISTS expenses (
     id VARCHAR(50) PRIMARY KEY,
     description VARCHAR(500),
     amount DECIMAL(10, 2) NOT NULL,
+    currency CHAR(3) NOT NULL DEFAULT 'USD',
     paid_by_user_id VARCHAR(50) NOT NULL,
     group_id VARCHAR(50) NOT NULL,
     split_type ENUM('EQUAL', 'EXACT', 'PERCENT') NOT NULL,
@@ -68,12 +70,13 @@ CREATE TABLE IF NOT EXISTS balances (
     debtor_user_id VARCHAR(50) NOT NULL,
     creditor_user_id VARCHAR(50) NOT NULL,
     amount DECIMAL(10, 2) NOT NULL DEFAULT 0.00,
+    currency CHAR(3) NOT NULL DEFAULT 'USD',
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (debtor_user_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (creditor_user_id) REFERENCES users(id) ON DELETE CASCADE,
     INDEX idx_debtor (debtor_user_id),
     INDEX idx_creditor (creditor_user_id),
-    UNIQUE KEY unique_debtor_creditor (debtor_user_id, creditor_user_id),
+    UNIQUE KEY unique_debtor_creditor_currency (debtor_user_id, creditor_user_id, currency),
     CHECK (debtor_user_id != creditor_user_id),
     CHECK (amount >= 0)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -84,6 +87,7 @@ CREATE TABLE IF NOT EXISTS settlements (
     from_user_id VARCHAR(50) NOT NULL,
     to_user_id VARCHAR(50) NOT NULL,
     amount DECIMAL(10, 2) NOT NULL,
+    currency CHAR(3) NOT NULL DEFAULT 'USD',
     settled_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (from_user_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (to_user_id) REFERENCES users(id) ON DELETE CASCADE,
@@ -94,3 +98,27 @@ CREATE TABLE IF NOT EXISTS settlements (
     CHECK (amount > 0)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Idempotency keys (a client retry key with the full expense it committed, so retries are
+-- answered after a restart even though expense ids are only unique per process)
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    expense_id VARCHAR(50) NOT NULL,
+    description VARCHAR(500),
+    amount DECIMAL(10, 2) NOT NULL,
+    currency CHAR(3) NOT NULL DEFAULT 'USD',
+    paid_by_user_id VARCHAR(50) NOT NULL,
+    group_id VARCHAR(50) NOT NULL,
+    split_type ENUM('EQUAL', 'EXACT', 'PERCENT') NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Splits of the expense recorded with each idempotency key, written in the same transaction
+CREATE TABLE IF NOT EXISTS idempotency_key_splits (
+    idempotency_key VARCHAR(100) NOT NULL,
+    position INT NOT NULL,
+    user_id VARCHAR(50) NOT NULL,
+    value DECIMAL(10, 2) NOT NULL,
+    PRIMARY KEY (idempotency_key, position),
+    FOREIGN KEY (idempotency_key) REFERENCES idempotency_keys(idempotency_key) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -1,11 +1,20 @@
 package splitwise;
 
+import splitwise.fx.FxRateTable;
 import splitwise.model.*;
+import splitwise.report.ReportFormat;
+import splitwise.report.ReportService;
 import splitwise.service.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Currency;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Main {
     public static void main(String[] args) {
@@ -144,6 +153,41 @@ public class Main {
             System.out.println("   ✓ Caught expected error: " + e.getMessage());
         }
 
+        // Export balances and expense history
+        System.out.println("\n9. Exporting reports...");
+        ReportService reportService = new ReportService(userService, balanceService, expenseService);
+        WritableByteChannel stdout = Channels.newChannel(System.out);
+        try {
+            System.out.println("\n   Balances (CSV):");
+            reportService.exportBalances(stdout, ReportFormat.CSV);
+            System.out.println("\n   Expense history (JSON lines):");
+            reportService.exportExpenses(stdout, ReportFormat.JSON_LINES);
+        } catch (IOException e) {
+            System.out.println("   Failed to export reports: " + e.getMessage());
+        }
+
+        // Expenses in another currency are tracked in their own ledger
+        System.out.println("\n10. Multi-currency expenses...");
+        Currency usd = Currency.getInstance("USD");
+        Currency eur = Currency.getInstance("EUR");
+        Map<Currency, BigDecimal> rates = new LinkedHashMap<>();
+        rates.put(eur, new BigDecimal("0.92"));
+        FxRateTable fxRates = FxRateTable.of(usd, rates);
+
+        System.out.println("   Expense 4: Museum tickets - EUR 60 (EQUAL split, paid by Bob)");
+        List<Split> splits4 = new ArrayList<>();
+        splits4.add(new EqualSplit(alice));
+        splits4.add(new EqualSplit(bob));
+        splits4.add(new EqualSplit(charlie));
+        expenseService.addExpense("Museum tickets", new BigDecimal("60.00"), eur, "U2", splits4, SplitType.EQUAL, "G1");
+
+        for (Map.Entry<Currency, Map<String, Map<String, BigDecimal>>> ledger :
+                balanceService.getAllBalancesByCurrency().entrySet()) {
+            System.out.println("   Simplified " + ledger.getKey() + " balances: " + ledger.getValue());
+        }
+        System.out.println("   Simplified in USD: " + balanceService.getAllBalances(usd, fxRates));
+        System.out.println("   Alice owes Bob in total: $" + balanceService.getBalance("U1", "U2", usd, fxRates));
+
         System.out.println("\n=== Demo Complete ===");
     }
 }
@@ -0,0 +1,87 @@
+package splitwise.archive;
+
+import splitwise.model.SplitType;
+
+import java.math.BigDecimal;
+
+/**
+ * Reusable flyweight over one archived expense. {@link ExpenseArchive#forEach} repositions a
+ * single instance on every row, so views must not be retained across callbacks.
+ */
+public class ArchivedExpenseView {
+    private final ExpenseArchive archive;
+    private ExpenseSegment segment;
+    private int row;
+
+    ArchivedExpenseView(ExpenseArchive archive) {
+        this.archive = archive;
+    }
+
+    void wrap(ExpenseSegment segment, int row) {
+        this.segment = segment;
+        this.row = row;
+    }
+
+    public String getId() {
+        return segment.getId(row);
+    }
+
+    public String getDescription() {
+        return segment.getDescription(row);
+    }
+
+    public long getAmountMinor() {
+        return segment.getAmountMinor(row);
+    }
+
+    public BigDecimal getAmount() {
+        return BigDecimal.valueOf(getAmountMinor(), ExpenseArchive.MINOR_UNIT_SCALE);
+    }
+
+    public int getPaidByIndex() {
+        return segment.getPayer(row);
+    }
+
+    public String getPaidById() {
+        return archive.getUserId(getPaidByIndex());
+    }
+
+    public int getGroupIndex() {
+        return segment.getGroup(row);
+    }
+
+    public String getGroupId() {
+        return archive.getGroupId(getGroupIndex());
+    }
+
+    public SplitType getSplitType() {
+        return segment.getSplitType(row);
+    }
+
+    public int getSplitCount() {
+        return segment.getSplitEnd(row) - segment.getSplitStart(row);
+    }
+
+    public int getParticipantIndex(int split) {
+        return segment.getParticipant(splitRow(split));
+    }
+
+    public String getParticipantId(int split) {
+        return archive.getUserId(getParticipantIndex(split));
+    }
+
+    public long getShareMinor(int split) {
+        return segment.getShareMinor(splitRow(split));
+    }
+
+    public BigDecimal getShare(int split) {
+        return BigDecimal.valueOf(getShareMinor(split), ExpenseArchive.MINOR_UNIT_SCALE);
+    }
+
+    private int splitRow(int split) {
+        if (split < 0 || split >= getSplitCount()) {
+            throw new IndexOutOfBoundsException("split " + split + " of " + getSplitCount());
+        }
+        return segment.getSplitStart(row) + split;
+    }
+}
@@ -0,0 +1,10 @@
+package splitwise.archive;
+
+/**
+ * Receives one ledger effect per archived split whose participant is not the payer:
+ * the participant (debtor) owes the payer (creditor) the share. Users are dictionary indices,
+ * resolvable through {@link ExpenseArchive#getUserId(int)}.
+ */
+public interface ArchivedShareVisitor {
+    void visit(int debtorIndex, int creditorIndex, long shareMinor);
+}
@@ -0,0 +1,283 @@
+package splitwise.archive;
+
+import splitwise.model.Expense;
+import splitwise.model.Split;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Archival tier for historical expenses. Expenses are copied into off-heap columnar
+ * {@link ExpenseSegment}s, so years of history no longer hold {@code Expense}, {@code Split}
+ * and {@code BigDecimal} objects on the Java heap. Only the user and group id dictionaries
+ * stay on-heap.
+ *
+ * <p>Segments are either direct buffers or memory-mapped files. Mapped segments let the OS page
+ * cold history in and out; they are not a self-describing durable format, since the dictionaries
+ * and row counts live in this object. Not thread-safe.
+ */
+public class ExpenseArchive {
+    static final int MINOR_UNIT_SCALE = 2;
+
+    private static final int DEFAULT_EXPENSES_PER_SEGMENT = 64 * 1024;
+    private static final int DEFAULT_SPLITS_PER_SEGMENT = 256 * 1024;
+    private static final int DEFAULT_TEXT_BYTES_PER_SEGMENT = 4 * 1024 * 1024;
+
+    private final int expensesPerSegment;
+    private final int splitsPerSegment;
+    private final int textBytesPerSegment;
+    private final Path directory;
+
+    private final List<ExpenseSegment> segments = new ArrayList<>();
+    private final List<String> userIds = new ArrayList<>();
+    private final Map<String, Integer> userIndex = new HashMap<>();
+    private final List<String> groupIds = new ArrayList<>();
+    private final Map<String, Integer> groupIndex = new HashMap<>();
+    private long expenseCount;
+
+    private ExpenseArchive(int expensesPerSegment, int splitsPerSegment, int textBytesPerSegment, Path directory) {
+        if (expensesPerSegment <= 0 || splitsPerSegment <= 0 || textBytesPerSegment <= 0) {
+            throw new IllegalArgumentException("segment capacities must be positive");
+        }
+        ExpenseSegment.sizeInBytes(expensesPerSegment, splitsPerSegment, textBytesPerSegment);
+        this.expensesPerSegment = expensesPerSegment;
+        this.splitsPerSegment = splitsPerSegment;
+        this.textBytesPerSegment = textBytesPerSegment;
+        this.directory = directory;
+    }
+
+    public static ExpenseArchive inMemory() {
+        return inMemory(DEFAULT_EXPENSES_PER_SEGMENT, DEFAULT_SPLITS_PER_SEGMENT, DEFAULT_TEXT_BYTES_PER_SEGMENT);
+    }
+
+    /**
+     * Archive backed by direct (off-heap) buffers.
+     */
+    public static ExpenseArchive inMemory(int expensesPerSegment, int splitsPerSegment, int textBytesPerSegment) {
+        return new ExpenseArchive(expensesPerSegment, splitsPerSegment, textBytesPerSegment, null);
+    }
+
+    public static ExpenseArchive mapped(Path directory) throws IOException {
+        return mapped(directory, DEFAULT_EXPENSES_PER_SEGMENT, DEFAULT_SPLITS_PER_SEGMENT, DEFAULT_TEXT_BYTES_PER_SEGMENT);
+    }
+
+    /**
+     * Archive backed by one memory-mapped file per segment inside {@code directory}.
+     */
+    public static ExpenseArchive mapped(Path directory,
+                                        int expensesPerSegment,
+                                        int splitsPerSegment,
+                                        int textBytesPerSegment) throws IOException {
+        Files.createDirectories(directory);
+        return new ExpenseArchive(expensesPerSegment, splitsPerSegment, textBytesPerSegment, directory);
+    }
+
+    /**
+     * Copies the expense into the archive. Amounts must have at most two decimal places and be
+     * in {@link Expense#DEFAULT_CURRENCY}; the columns carry no currency.
+     */
+    public void append(Expense expense) {
+        if (!expense.getCurrency().equals(Expense.DEFAULT_CURRENCY)) {
+            throw new IllegalArgumentException("Only " + Expense.DEFAULT_CURRENCY + " expenses can be archived, got "
+                    + expense.getCurrency() + " for " + expense.getId());
+        }
+        long amount = toMinorUnits(expense.getAmount());
+        List<Split> splits = expense.getSplits();
+        long[] shares = new long[splits.size()];
+        for (int i = 0; i < splits.size(); i++) {
+            shares[i] = toMinorUnits(splits.get(i).getValue());
+        }
+        byte[] id = expense.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] description = expense.getDescription() == null
+                ? null
+                : expense.getDescription().getBytes(StandardCharsets.UTF_8);
+        int textBytes = id.length + (description == null ? 0 : description.length);
+
+        ExpenseSegment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || !segment.fits(splits.size(), textBytes)) {
+            if (splits.size() > splitsPerSegment || textBytes > textBytesPerSegment) {
+                throw new IllegalArgumentException("Expense " + expense.getId() + " does not fit in an empty segment");
+            }
+            segment = newSegment();
+        }
+
+        // Ids are only interned once the expense is known to fit, so the dictionaries never
+        // hold entries that no row references
+        int[] participants = new int[splits.size()];
+        for (int i = 0; i < splits.size(); i++) {
+            participants[i] = indexOf(splits.get(i).getUser().getId(), userIds, userIndex);
+        }
+        segment.append(
+                indexOf(expense.getPaidBy().getId(), userIds, userIndex),
+                indexOf(expense.getGroup().getId(), groupIds, groupIndex),
+                amount,
+                expense.getSplitType(),
+                id,
+                description,
+                participants,
+                shares);
+        expenseCount++;
+    }
+
+    /**
+     * Calls {@code action} once per archived expense, in archive order, with a single reused view.
+     */
+    public void forEach(Consumer<ArchivedExpenseView> action) {
+        ArchivedExpenseView view = new ArchivedExpenseView(this);
+        for (ExpenseSegment segment : segments) {
+            int count = segment.getExpenseCount();
+            for (int row = 0; row < count; row++) {
+                view.wrap(segment, row);
+                action.accept(view);
+            }
+        }
+    }
+
+    /**
+     * Streams the ledger effect of every archived split in one segment. Segments are independent,
+     * so callers may scan different segments from different threads once appends have stopped.
+     */
+    public void forEachShare(int segment, ArchivedShareVisitor visitor) {
+        segments.get(segment).forEachShare(visitor);
+    }
+
+    public int getUserCount() {
+        return userIds.size();
+    }
+
+    public long size() {
+        return expenseCount;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long totalPaidMinor(String userId) {
+        Integer index = userIndex.get(userId);
+        if (index == null) {
+            return 0;
+        }
+        long total = 0;
+        for (ExpenseSegment segment : segments) {
+            total += segment.sumPaidBy(index);
+        }
+        return total;
+    }
+
+    public long totalShareMinor(String userId) {
+        Integer index = userIndex.get(userId);
+        if (index == null) {
+            return 0;
+        }
+        long total = 0;
+        for (ExpenseSegment segment : segments) {
+            total += segment.sumSharesOf(index);
+        }
+        return total;
+    }
+
+    /**
+     * What the user is owed minus what they owe across all archived expenses, in minor units.
+     */
+    public long netMinor(String userId) {
+        return totalPaidMinor(userId) - totalShareMinor(userId);
+    }
+
+    public long totalAmountForGroupMinor(String groupId) {
+        Integer index = groupIndex.get(groupId);
+        if (index == null) {
+            return 0;
+        }
+        long total = 0;
+        for (ExpenseSegment segment : segments) {
+            total += segment.sumAmountForGroup(index);
+        }
+        return total;
+    }
+
+    /**
+     * Net position of every user within the group, in minor units. Users without archived
+     * activity in the group are omitted.
+     */
+    public Map<String, Long> netByUserForGroupMinor(String groupId) {
+        Integer index = groupIndex.get(groupId);
+        if (index == null) {
+            return Collections.emptyMap();
+        }
+        long[] net = new long[userIds.size()];
+        for (ExpenseSegment segment : segments) {
+            segment.accumulateNetForGroup(index, net);
+        }
+        Map<String, Long> result = new HashMap<>();
+        for (int i = 0; i < net.length; i++) {
+            if (net[i] != 0) {
+                result.put(userIds.get(i), net[i]);
+            }
+        }
+        return result;
+    }
+
+    public String getUserId(int index) {
+        return userIds.get(index);
+    }
+
+    public String getGroupId(int index) {
+        return groupIds.get(index);
+    }
+
+    public static long toMinorUnits(BigDecimal amount) {
+        try {
+            return amount.setScale(MINOR_UNIT_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount + " cannot be stored in minor units", e);
+        }
+    }
+
+    private ExpenseSegment newSegment() {
+        int size = ExpenseSegment.sizeInBytes(expensesPerSegment, splitsPerSegment, textBytesPerSegment);
+        ByteBuffer storage;
+        if (directory == null) {
+            storage = ByteBuffer.allocateDirect(size);
+        } else {
+            Path file = directory.resolve(String.format("segment-%06d.dat", segments.size()));
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                storage = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map archive segment " + file, e);
+            }
+        }
+        ExpenseSegment segment = new ExpenseSegment(storage, expensesPerSegment, splitsPerSegment, textBytesPerSegment);
+        segments.add(segment);
+        return segment;
+    }
+
+    private static int indexOf(String id, List<String> ids, Map<String, Integer> index) {
+        Integer existing = index.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        int next = ids.size();
+        ids.add(id);
+        index.put(id, next);
+        return next;
+    }
+}
@@ -0,0 +1,262 @@
+package splitwise.archive;
+
+import splitwise.model.SplitType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-capacity block of archived expenses laid out column by column in one off-heap buffer.
+ * Expense rows and split rows are separate columns; {@code splitOffsets[i]..splitOffsets[i + 1]}
+ * are the split rows of expense {@code i}. Users and groups are stored as dictionary indices
+ * owned by the {@link ExpenseArchive}, amounts as longs in minor units.
+ */
+class ExpenseSegment {
+    private static final SplitType[] SPLIT_TYPES = SplitType.values();
+    private static final byte HAS_DESCRIPTION = 1;
+
+    private final int expenseCapacity;
+    private final int splitCapacity;
+    private final int textCapacity;
+
+    private final LongBuffer amountMinor;
+    private final LongBuffer shareMinor;
+    private final IntBuffer payer;
+    private final IntBuffer group;
+    private final IntBuffer splitOffsets;
+    private final IntBuffer textOffsets;
+    private final IntBuffer idLength;
+    private final IntBuffer participant;
+    private final ByteBuffer splitType;
+    private final ByteBuffer flags;
+    private final ByteBuffer text;
+
+    private int expenseCount;
+    private int splitCount;
+    private int textLength;
+
+    ExpenseSegment(ByteBuffer storage, int expenseCapacity, int splitCapacity, int textCapacity) {
+        if (storage.capacity() < sizeInBytes(expenseCapacity, splitCapacity, textCapacity)) {
+            throw new IllegalArgumentException("storage is too small for the requested capacities");
+        }
+        this.expenseCapacity = expenseCapacity;
+        this.splitCapacity = splitCapacity;
+        this.textCapacity = textCapacity;
+
+        int offset = 0;
+        amountMinor = slice(storage, offset, expenseCapacity * 8).asLongBuffer();
+        offset += expenseCapacity * 8;
+        shareMinor = slice(storage, offset, splitCapacity * 8).asLongBuffer();
+        offset += splitCapacity * 8;
+        payer = slice(storage, offset, expenseCapacity * 4).asIntBuffer();
+        offset += expenseCapacity * 4;
+        group = slice(storage, offset, expenseCapacity * 4).asIntBuffer();
+        offset += expenseCapacity * 4;
+        splitOffsets = slice(storage, offset, (expenseCapacity + 1) * 4).asIntBuffer();
+        offset += (expenseCapacity + 1) * 4;
+        textOffsets = slice(storage, offset, (expenseCapacity + 1) * 4).asIntBuffer();
+        offset += (expenseCapacity + 1) * 4;
+        idLength = slice(storage, offset, expenseCapacity * 4).asIntBuffer();
+        offset += expenseCapacity * 4;
+        participant = slice(storage, offset, splitCapacity * 4).asIntBuffer();
+        offset += splitCapacity * 4;
+        splitType = slice(storage, offset, expenseCapacity);
+        offset += expenseCapacity;
+        flags = slice(storage, offset, expenseCapacity);
+        offset += expenseCapacity;
+        text = slice(storage, offset, textCapacity);
+
+        splitOffsets.put(0, 0);
+        textOffsets.put(0, 0);
+    }
+
+    static int sizeInBytes(int expenseCapacity, int splitCapacity, int textCapacity) {
+        long size = expenseCapacity * 8L
+                + splitCapacity * 8L
+                + expenseCapacity * 4L * 3
+                + (expenseCapacity + 1) * 4L * 2
+                + splitCapacity * 4L
+                + expenseCapacity * 2L
+                + textCapacity;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segment would exceed 2GB");
+        }
+        return (int) size;
+    }
+
+    boolean fits(int splits, int textBytes) {
+        return expenseCount < expenseCapacity
+                && splitCount + splits <= splitCapacity
+                && textLength + textBytes <= textCapacity;
+    }
+
+    /**
+     * Appends one expense; the caller has already checked {@link #fits(int, int)}.
+     */
+    void append(int payerIndex,
+                int groupIndex,
+                long amount,
+                SplitType type,
+                byte[] id,
+                byte[] description,
+                int[] participants,
+                long[] shares) {
+        int row = expenseCount;
+        amountMinor.put(row, amount);
+        payer.put(row, payerIndex);
+        group.put(row, groupIndex);
+        splitType.put(row, (byte) type.ordinal());
+        flags.put(row, description != null ? HAS_DESCRIPTION : 0);
+
+        for (int i = 0; i < participants.length; i++) {
+            participant.put(splitCount + i, participants[i]);
+            shareMinor.put(splitCount + i, shares[i]);
+        }
+        splitCount += participants.length;
+        splitOffsets.put(row + 1, splitCount);
+
+        idLength.put(row, id.length);
+        putText(id);
+        if (description != null) {
+            putText(description);
+        }
+        textOffsets.put(row + 1, textLength);
+
+        expenseCount++;
+    }
+
+    int getExpenseCount() {
+        return expenseCount;
+    }
+
+    long getAmountMinor(int row) {
+        return amountMinor.get(row);
+    }
+
+    int getPayer(int row) {
+        return payer.get(row);
+    }
+
+    int getGroup(int row) {
+        return group.get(row);
+    }
+
+    SplitType getSplitType(int row) {
+        return SPLIT_TYPES[splitType.get(row)];
+    }
+
+    int getSplitStart(int row) {
+        return splitOffsets.get(row);
+    }
+
+    int getSplitEnd(int row) {
+        return splitOffsets.get(row + 1);
+    }
+
+    int getParticipant(int splitRow) {
+        return participant.get(splitRow);
+    }
+
+    long getShareMinor(int splitRow) {
+        return shareMinor.get(splitRow);
+    }
+
+    String getId(int row) {
+        return decode(textOffsets.get(row), idLength.get(row));
+    }
+
+    String getDescription(int row) {
+        if ((flags.get(row) & HAS_DESCRIPTION) == 0) {
+            return null;
+        }
+        int start = textOffsets.get(row) + idLength.get(row);
+        return decode(start, textOffsets.get(row + 1) - start);
+    }
+
+    // Column scans. Plain counted loops over primitive columns with no per-row object access.
+
+    long sumPaidBy(int userIndex) {
+        long total = 0;
+        for (int row = 0; row < expenseCount; row++) {
+            if (payer.get(row) == userIndex) {
+                total += amountMinor.get(row);
+            }
+        }
+        return total;
+    }
+
+    long sumSharesOf(int userIndex) {
+        long total = 0;
+        for (int splitRow = 0; splitRow < splitCount; splitRow++) {
+            if (participant.get(splitRow) == userIndex) {
+                total += shareMinor.get(splitRow);
+            }
+        }
+        return total;
+    }
+
+    long sumAmountForGroup(int groupIndex) {
+        long total = 0;
+        for (int row = 0; row < expenseCount; row++) {
+            if (group.get(row) == groupIndex) {
+                total += amountMinor.get(row);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Adds each user's net position within the group (paid minus own shares) into {@code net},
+     * indexed by user dictionary index.
+     */
+    void accumulateNetForGroup(int groupIndex, long[] net) {
+        for (int row = 0; row < expenseCount; row++) {
+            if (group.get(row) != groupIndex) {
+                continue;
+            }
+            net[payer.get(row)] += amountMinor.get(row);
+            int end = splitOffsets.get(row + 1);
+            for (int splitRow = splitOffsets.get(row); splitRow < end; splitRow++) {
+                net[participant.get(splitRow)] -= shareMinor.get(splitRow);
+            }
+        }
+    }
+
+    void forEachShare(ArchivedShareVisitor visitor) {
+        for (int row = 0; row < expenseCount; row++) {
+            int creditor = payer.get(row);
+            int end = splitOffsets.get(row + 1);
+            for (int splitRow = splitOffsets.get(row); splitRow < end; splitRow++) {
+                int debtor = participant.get(splitRow);
+                if (debtor != creditor) {
+                    visitor.visit(debtor, creditor, shareMinor.get(splitRow));
+                }
+            }
+        }
+    }
+
+    private void putText(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            text.put(textLength + i, bytes[i]);
+        }
+        textLength += bytes.length;
+    }
+
+    private String decode(int start, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = text.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer slice(ByteBuffer storage, int offset, int length) {
+        ByteBuffer view = storage.duplicate();
+        view.limit(offset + length);
+        view.position(offset);
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,266 @@
+package splitwise.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache that loads missing entries on demand. Concurrent misses for the same
+ * key share a single load, and {@link #getAll(Collection)} loads all missing keys in one bulk
+ * call. Keys the loader does not find are not cached. Thread-safe.
+ */
+public class LoadingCache<K, V> {
+    private final int maxSize;
+    private final Function<K, V> loader;
+    private final Function<Collection<K>, Map<K, V>> bulkLoader;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, V> entries;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param loader     returns the value for a key, or {@code null} if it does not exist
+     * @param bulkLoader returns the values found for the given keys; absent keys are simply missing
+     */
+    public LoadingCache(int maxSize, Function<K, V> loader, Function<Collection<K>, Map<K, V>> bulkLoader) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.loader = Objects.requireNonNull(loader, "loader must not be null");
+        this.bulkLoader = Objects.requireNonNull(bulkLoader, "bulkLoader must not be null");
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LoadingCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, loading it if necessary, or {@code null} if the loader does not find it.
+     */
+    public V get(K key) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            // Another thread may have finished loading between our miss and claiming the key
+            value = getIfPresent(key);
+            if (value == null) {
+                value = load(key);
+            }
+            pending.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    /**
+     * Returns the values found for the keys. Cached keys are served directly; all other keys not
+     * already being loaded by another thread are fetched with one bulk load.
+     */
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> result = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        lock.lock();
+        try {
+            for (K key : keys) {
+                V value = entries.get(key);
+                if (value != null) {
+                    result.put(key, value);
+                } else if (!result.containsKey(key)) {
+                    missing.add(key);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        hits.add(result.size());
+        misses.add(missing.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<K, CompletableFuture<V>> claimed = new HashMap<>();
+        Map<K, CompletableFuture<V>> awaited = new HashMap<>();
+        for (K key : missing) {
+            if (claimed.containsKey(key) || awaited.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> pending = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, pending);
+            if (existing == null) {
+                claimed.put(key, pending);
+            } else {
+                awaited.put(key, existing);
+            }
+        }
+
+        if (!claimed.isEmpty()) {
+            try {
+                loads.increment();
+                Map<K, V> loaded = bulkLoader.apply(new ArrayList<>(claimed.keySet()));
+                lock.lock();
+                try {
+                    for (Map.Entry<K, V> entry : loaded.entrySet()) {
+                        if (entry.getValue() != null) {
+                            entries.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                for (Map.Entry<K, CompletableFuture<V>> entry : claimed.entrySet()) {
+                    V value = loaded.get(entry.getKey());
+                    entry.getValue().complete(value);
+                    if (value != null) {
+                        result.put(entry.getKey(), value);
+                    }
+                }
+            } catch (RuntimeException e) {
+                loadFailures.increment();
+                for (CompletableFuture<V> pending : claimed.values()) {
+                    pending.completeExceptionally(e);
+                }
+                throw e;
+            } finally {
+                for (Map.Entry<K, CompletableFuture<V>> entry : claimed.entrySet()) {
+                    inFlight.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        for (Map.Entry<K, CompletableFuture<V>> entry : awaited.entrySet()) {
+            V value = await(entry.getValue());
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    public V getIfPresent(K key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        Objects.requireNonNull(value, "value must not be null");
+        lock.lock();
+        try {
+            entries.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of loader calls, counting each bulk load once.
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private V load(K key) {
+        loads.increment();
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            throw e;
+        }
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    private static <V> V await(CompletableFuture<V> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package splitwise.event;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * A single balance change between two users. Instances are pre-allocated slots owned by a
+ * {@link BalanceEventRingBuffer} and are overwritten once every consumer has moved past them,
+ * so handlers must copy out anything they want to keep.
+ */
+public class BalanceEvent {
+    private BalanceEventType type;
+    private String debtorId;
+    private String creditorId;
+    private BigDecimal amount;
+    private Currency currency;
+    private String expenseId;
+    private String groupId;
+    private long settlementId;
+    private long publishNanos;
+
+    void set(BalanceEventType type,
+             String debtorId,
+             String creditorId,
+             BigDecimal amount,
+             Currency currency,
+             String expenseId,
+             String groupId,
+             long settlementId) {
+        this.type = type;
+        this.debtorId = debtorId;
+        this.creditorId = creditorId;
+        this.amount = amount;
+        this.currency = currency;
+        this.expenseId = expenseId;
+        this.groupId = groupId;
+        this.settlementId = settlementId;
+        this.publishNanos = System.nanoTime();
+    }
+
+    public BalanceEventType getType() {
+        return type;
+    }
+
+    public String getDebtorId() {
+        return debtorId;
+    }
+
+    public String getCreditorId() {
+        return creditorId;
+    }
+
+    /**
+     * Amount of the change, unsigned except for adjustments. Use {@link #getDelta()} for the
+     * signed effect on what the debtor owes the creditor.
+     */
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public BigDecimal getDelta() {
+        return type == BalanceEventType.SETTLEMENT ? amount.negate() : amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Id of the expense that caused this change, or {@code null} for settlements.
+     */
+    public String getExpenseId() {
+        return expenseId;
+    }
+
+    /**
+     * Group of the expense that caused this change, or {@code null} for settlements.
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * Id of the settlement that caused this change, or {@code 0} for expense shares.
+     */
+    public long getSettlementId() {
+        return settlementId;
+    }
+
+    /**
+     * {@link System#nanoTime()} at which the writer published this event.
+     */
+    public long getPublishNanos() {
+        return publishNanos;
+    }
+}
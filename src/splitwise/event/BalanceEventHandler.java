@@ -0,0 +1,9 @@
+package splitwise.event;
+
+public interface BalanceEventHandler {
+    /**
+     * @param endOfBatch true for the last event currently available, a natural point to
+     *                   flush work accumulated over the batch
+     */
+    void onEvent(BalanceEvent event, long sequence, boolean endOfBatch) throws Exception;
+}
@@ -0,0 +1,209 @@
+package splitwise.event;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pre-allocated, single-writer ring of {@link BalanceEvent}s. The writer never allocates:
+ * it claims the next slot, overwrites its fields and advances the cursor. Each consumer
+ * tracks its own {@link Sequence}; the writer waits instead of overwriting a slot that the
+ * slowest consumer has not processed yet, but only for a bounded time. A consumer still a full
+ * ring behind after that is dropped, so a stalled read side cannot stall writes.
+ *
+ * <p>Publishing must only happen from one thread at a time.
+ */
+public class BalanceEventRingBuffer {
+    private static final long DEFAULT_MAX_CLAIM_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final BalanceEvent[] entries;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final long maxClaimWaitNanos;
+    private final Sequence cursor = new Sequence();
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    // Writer-only state
+    private long nextSequence = Sequence.INITIAL_VALUE;
+    private long cachedGatingSequence = Sequence.INITIAL_VALUE;
+
+    public BalanceEventRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        this(capacity, waitStrategy, DEFAULT_MAX_CLAIM_WAIT_NANOS);
+    }
+
+    /**
+     * @param maxClaimWaitNanos how long a publish may wait for the slowest consumer before that
+     *                          consumer is dropped
+     */
+    public BalanceEventRingBuffer(int capacity, WaitStrategy waitStrategy, long maxClaimWaitNanos) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2");
+        }
+        if (maxClaimWaitNanos < 0) {
+            throw new IllegalArgumentException("maxClaimWaitNanos must not be negative");
+        }
+        this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy must not be null");
+        this.maxClaimWaitNanos = maxClaimWaitNanos;
+        this.entries = new BalanceEvent[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new BalanceEvent();
+        }
+    }
+
+    public void publishExpenseShare(String debtorId,
+                                    String creditorId,
+                                    BigDecimal amount,
+                                    Currency currency,
+                                    String expenseId,
+                                    String groupId) {
+        long sequence = claim();
+        entries[(int) sequence & mask].set(
+                BalanceEventType.EXPENSE_SHARE, debtorId, creditorId, amount, currency, expenseId, groupId, 0L);
+        publish(sequence);
+    }
+
+    public void publishSettlement(String debtorId,
+                                  String creditorId,
+                                  BigDecimal amount,
+                                  Currency currency,
+                                  long settlementId) {
+        long sequence = claim();
+        entries[(int) sequence & mask].set(
+                BalanceEventType.SETTLEMENT, debtorId, creditorId, amount, currency, null, null, settlementId);
+        publish(sequence);
+    }
+
+    /**
+     * @param delta signed correction applied directly to the debtor-to-creditor edge
+     */
+    public void publishAdjustment(String debtorId, String creditorId, BigDecimal delta, Currency currency) {
+        long sequence = claim();
+        entries[(int) sequence & mask].set(
+                BalanceEventType.ADJUSTMENT, debtorId, creditorId, delta, currency, null, null, 0L);
+        publish(sequence);
+    }
+
+    /**
+     * Creates a consumer that will see every event published after this call.
+     * Run the returned processor on its own thread.
+     */
+    public BatchEventProcessor createConsumer(BalanceEventHandler handler) {
+        BatchEventProcessor processor = new BatchEventProcessor(this, handler);
+        addGatingSequence(processor.getSequence());
+        return processor;
+    }
+
+    /**
+     * Stops the writer from waiting on this consumer. Halted processors do this themselves.
+     */
+    public void removeConsumer(BatchEventProcessor processor) {
+        removeGatingSequence(processor.getSequence());
+    }
+
+    /**
+     * False once the consumer owning {@code sequence} was removed, by itself or for falling behind.
+     */
+    boolean isGatedBy(Sequence sequence) {
+        for (Sequence gating : gatingSequences) {
+            if (gating == sequence) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public BalanceEvent get(long sequence) {
+        return entries[(int) sequence & mask];
+    }
+
+    /**
+     * Highest published sequence, or -1 if nothing has been published.
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    Sequence cursorSequence() {
+        return cursor;
+    }
+
+    WaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    private long claim() {
+        long next = nextSequence + 1;
+        long wrapPoint = next - entries.length;
+        if (wrapPoint > cachedGatingSequence) {
+            long minSequence;
+            long deadline = System.nanoTime() + maxClaimWaitNanos;
+            while (wrapPoint > (minSequence = minimumGatingSequence(nextSequence))) {
+                if (System.nanoTime() - deadline >= 0) {
+                    dropConsumersBehind(wrapPoint);
+                } else {
+                    LockSupport.parkNanos(1L);
+                }
+            }
+            cachedGatingSequence = minSequence;
+        }
+        nextSequence = next;
+        return next;
+    }
+
+    private void publish(long sequence) {
+        cursor.set(sequence);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    private long minimumGatingSequence(long defaultValue) {
+        long minimum = defaultValue;
+        for (Sequence sequence : gatingSequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    private void dropConsumersBehind(long wrapPoint) {
+        for (Sequence sequence : gatingSequences) {
+            if (sequence.get() < wrapPoint) {
+                removeGatingSequence(sequence);
+            }
+        }
+    }
+
+    private synchronized void addGatingSequence(Sequence sequence) {
+        sequence.set(cursor.get());
+        Sequence[] current = gatingSequences;
+        Sequence[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = sequence;
+        gatingSequences = updated;
+        // A publish racing with registration may have landed before the set above
+        sequence.set(cursor.get());
+    }
+
+    private synchronized void removeGatingSequence(Sequence sequence) {
+        Sequence[] current = gatingSequences;
+        int index = -1;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == sequence) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return;
+        }
+        Sequence[] updated = new Sequence[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+        gatingSequences = updated;
+    }
+}
@@ -0,0 +1,7 @@
+package splitwise.event;
+
+public enum BalanceEventType {
+    EXPENSE_SHARE,
+    SETTLEMENT,
+    ADJUSTMENT
+}
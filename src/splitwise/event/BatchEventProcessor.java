@@ -0,0 +1,98 @@
+package splitwise.event;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs one {@link BalanceEventHandler} against a ring buffer on its own thread, handing it
+ * every event available at once so it can batch work and flush on {@code endOfBatch}.
+ * If the handler throws, the processor stops and unregisters itself so the writer is never
+ * left waiting on a dead consumer. If the writer drops it for falling a full ring behind, it
+ * stops with a failure, since the slots it had not read yet may have been overwritten.
+ */
+public class BatchEventProcessor implements Runnable {
+    private final BalanceEventRingBuffer ringBuffer;
+    private final BalanceEventHandler handler;
+    private final Sequence sequence = new Sequence();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Thread thread;
+    private volatile Throwable failure;
+
+    BatchEventProcessor(BalanceEventRingBuffer ringBuffer, BalanceEventHandler handler) {
+        this.ringBuffer = ringBuffer;
+        this.handler = Objects.requireNonNull(handler, "handler must not be null");
+    }
+
+    @Override
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Processor is already running");
+        }
+        thread = Thread.currentThread();
+        Sequence cursor = ringBuffer.cursorSequence();
+        WaitStrategy waitStrategy = ringBuffer.waitStrategy();
+        long nextSequence = sequence.get() + 1;
+        try {
+            while (running.get()) {
+                long available = waitStrategy.waitFor(nextSequence, cursor);
+                checkStillGating();
+                while (nextSequence <= available) {
+                    handler.onEvent(ringBuffer.get(nextSequence), nextSequence, nextSequence == available);
+                    nextSequence++;
+                }
+                // The writer may have dropped this consumer while it was reading the batch
+                checkStillGating();
+                sequence.set(available);
+            }
+        } catch (InterruptedException e) {
+            // halt() interrupts the thread; nothing else to do
+        } catch (Throwable t) {
+            failure = t;
+            // Clear the flag before ungating so readers that saw it set know the slots they read
+            // were still protected
+            running.set(false);
+            ringBuffer.removeConsumer(this);
+        } finally {
+            running.set(false);
+            thread = null;
+        }
+    }
+
+    private void checkStillGating() {
+        // halt() clears the flag before ungating, so only a drop leaves it set here
+        if (!ringBuffer.isGatedBy(sequence) && running.get()) {
+            throw new IllegalStateException(
+                    "Dropped by the writer after falling " + ringBuffer.getCapacity() + " events behind");
+        }
+    }
+
+    /**
+     * Stops the processor after the event it is currently handling and stops gating the writer.
+     */
+    public void halt() {
+        running.set(false);
+        ringBuffer.removeConsumer(this);
+        Thread current = thread;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Last sequence this consumer has fully processed.
+     */
+    public Sequence getSequence() {
+        return sequence;
+    }
+
+    /**
+     * The handler exception that stopped this processor, if any.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+}
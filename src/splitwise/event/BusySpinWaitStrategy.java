@@ -0,0 +1,21 @@
+package splitwise.event;
+
+/**
+ * Lowest latency, burns a core per consumer. Use only when consumers have dedicated CPUs.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+    @Override
+    public long waitFor(long sequence, Sequence cursor) throws InterruptedException {
+        long available;
+        while ((available = cursor.get()) < sequence) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
@@ -0,0 +1,50 @@
+package splitwise.event;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+class SequenceLhsPadding {
+    protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+class SequenceValue extends SequenceLhsPadding {
+    protected volatile long value;
+}
+
+class SequenceRhsPadding extends SequenceValue {
+    protected long p9, p10, p11, p12, p13, p14, p15;
+}
+
+/**
+ * Cache-line padded counter used for the ring buffer cursor and consumer positions,
+ * so that the writer and each consumer do not false-share.
+ */
+public class Sequence extends SequenceRhsPadding {
+    static final long INITIAL_VALUE = -1L;
+
+    private static final AtomicLongFieldUpdater<SequenceValue> UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value");
+
+    public Sequence() {
+        this(INITIAL_VALUE);
+    }
+
+    public Sequence(long initialValue) {
+        UPDATER.lazySet(this, initialValue);
+    }
+
+    public long get() {
+        return value;
+    }
+
+    /**
+     * Ordered (release) write; cheaper than a full volatile store and enough for a single writer.
+     */
+    public void set(long newValue) {
+        UPDATER.lazySet(this, newValue);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -0,0 +1,50 @@
+package splitwise.event;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spins, then yields, then parks for a short interval. Trades latency for low CPU use
+ * without adding any work to the writer.
+ */
+public class SleepingWaitStrategy implements WaitStrategy {
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long DEFAULT_SLEEP_NANOS = 100_000L;
+
+    private final long sleepNanos;
+
+    public SleepingWaitStrategy() {
+        this(DEFAULT_SLEEP_NANOS);
+    }
+
+    public SleepingWaitStrategy(long sleepNanos) {
+        if (sleepNanos <= 0) {
+            throw new IllegalArgumentException("sleepNanos must be positive");
+        }
+        this.sleepNanos = sleepNanos;
+    }
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor) throws InterruptedException {
+        int counter = SPIN_TRIES + YIELD_TRIES;
+        long available;
+        while ((available = cursor.get()) < sequence) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (counter > YIELD_TRIES) {
+                counter--;
+            } else if (counter > 0) {
+                counter--;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(sleepNanos);
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
@@ -0,0 +1,20 @@
+package splitwise.event;
+
+/**
+ * How a consumer waits for the writer to publish a sequence.
+ */
+public interface WaitStrategy {
+    /**
+     * Waits until {@code sequence} has been published and returns the highest published
+     * sequence, which may be greater and lets the caller process a batch.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted, which is also how
+     *                              consumers are halted
+     */
+    long waitFor(long sequence, Sequence cursor) throws InterruptedException;
+
+    /**
+     * Called by the writer after every publish; only strategies that block need to act on it.
+     */
+    void signalAllWhenBlocking();
+}
@@ -0,0 +1,30 @@
+package splitwise.event;
+
+/**
+ * Spins briefly, then yields the CPU between checks. A good default for low latency
+ * without pinning a core.
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor) throws InterruptedException {
+        int counter = SPIN_TRIES;
+        long available;
+        while ((available = cursor.get()) < sequence) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (counter > 0) {
+                counter--;
+            } else {
+                Thread.yield();
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
@@ -0,0 +1,45 @@
+package splitwise.fx;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link FxRateTable}. Readers take one table with {@link #current()} and use
+ * it for a whole read, so a concurrent reload never mixes old and new rates within one result.
+ * Reloads build the new table off to the side and swap it in atomically.
+ */
+public class FxRateProvider {
+    private final Path ratesFile;
+    private final AtomicReference<FxRateTable> current;
+
+    public FxRateProvider(Path ratesFile) {
+        this.ratesFile = Objects.requireNonNull(ratesFile, "ratesFile must not be null");
+        this.current = new AtomicReference<>(FxRateTable.load(ratesFile));
+    }
+
+    public FxRateProvider(FxRateTable initial) {
+        this.ratesFile = null;
+        this.current = new AtomicReference<>(Objects.requireNonNull(initial, "initial must not be null"));
+    }
+
+    public FxRateTable current() {
+        return current.get();
+    }
+
+    /**
+     * Re-reads the rates file. If the file cannot be parsed the previous table stays in place.
+     */
+    public FxRateTable reload() {
+        if (ratesFile == null) {
+            throw new IllegalStateException("Provider was not created from a rates file");
+        }
+        FxRateTable table = FxRateTable.load(ratesFile);
+        current.set(table);
+        return table;
+    }
+
+    public void update(FxRateTable table) {
+        current.set(Objects.requireNonNull(table, "table must not be null"));
+    }
+}
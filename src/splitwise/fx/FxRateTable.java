@@ -0,0 +1,208 @@
+package splitwise.fx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Immutable table of conversion factors between every pair of known currencies.
+ *
+ * <p>Factors are precomputed once per table as fixed-point longs that map minor units of one
+ * currency straight to minor units of another, so a conversion is one long multiplication and a
+ * rounding step. Amounts too large for that fall back to an exact BigDecimal multiplication.
+ * Neither path divides a BigDecimal.
+ *
+ * <p>The rates file is a properties file naming a base currency and how many units of each
+ * other currency one unit of the base buys:
+ * <pre>
+ * base=USD
+ * rate.EUR=0.92
+ * rate.JPY=151.37
+ * </pre>
+ */
+public final class FxRateTable {
+    /** Decimal places kept in each factor. */
+    public static final int FACTOR_SCALE = 8;
+
+    private static final long FACTOR_ONE = 100_000_000L;
+    private static final String BASE_KEY = "base";
+    private static final String RATE_PREFIX = "rate.";
+
+    private final Currency base;
+    private final Map<Currency, Integer> indexes;
+    private final int[] fractionDigits;
+    private final long[] factors;
+    private final Map<Currency, BigDecimal> rates;
+
+    private FxRateTable(Currency base, Map<Currency, BigDecimal> rates) {
+        int size = rates.size();
+        Currency[] currencies = rates.keySet().toArray(new Currency[0]);
+        BigDecimal[] perBase = rates.values().toArray(new BigDecimal[0]);
+        Map<Currency, Integer> indexes = new IdentityHashMap<>();
+        int[] fractionDigits = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes.put(currencies[i], i);
+            fractionDigits[i] = fractionDigits(currencies[i]);
+        }
+
+        long[] factors = new long[size * size];
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                // One minor unit of `from` in minor units of `to`, as a fixed-point long
+                BigDecimal factor = perBase[to].divide(perBase[from], MathContext.DECIMAL128)
+                        .movePointRight(fractionDigits[to] - fractionDigits[from] + FACTOR_SCALE)
+                        .setScale(0, RoundingMode.HALF_UP);
+                factors[from * size + to] = factor.longValueExact();
+            }
+        }
+
+        this.base = base;
+        this.indexes = indexes;
+        this.fractionDigits = fractionDigits;
+        this.factors = factors;
+        this.rates = Collections.unmodifiableMap(new LinkedHashMap<>(rates));
+    }
+
+    /**
+     * @param ratesPerBase units of each currency that one unit of {@code base} buys; the base
+     *                     itself may be omitted
+     */
+    public static FxRateTable of(Currency base, Map<Currency, BigDecimal> ratesPerBase) {
+        Map<Currency, BigDecimal> rates = new LinkedHashMap<>();
+        rates.put(base, BigDecimal.ONE);
+        for (Map.Entry<Currency, BigDecimal> entry : ratesPerBase.entrySet()) {
+            if (entry.getValue().signum() <= 0) {
+                throw new IllegalArgumentException("Rate for " + entry.getKey() + " must be positive");
+            }
+            if (!entry.getKey().equals(base)) {
+                rates.put(entry.getKey(), entry.getValue());
+            } else if (entry.getValue().compareTo(BigDecimal.ONE) != 0) {
+                throw new IllegalArgumentException("Rate for base currency " + base + " must be 1");
+            }
+        }
+        return new FxRateTable(base, rates);
+    }
+
+    public static FxRateTable load(Path path) {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            props.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load FX rates from " + path, e);
+        }
+        return fromProperties(props);
+    }
+
+    public static FxRateTable fromProperties(Properties props) {
+        String baseCode = props.getProperty(BASE_KEY);
+        if (baseCode == null || baseCode.trim().isEmpty()) {
+            throw new IllegalStateException("Missing required property: " + BASE_KEY);
+        }
+        Map<Currency, BigDecimal> rates = new LinkedHashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(RATE_PREFIX)) {
+                String value = props.getProperty(key).trim();
+                try {
+                    rates.put(Currency.getInstance(key.substring(RATE_PREFIX.length()).trim()), new BigDecimal(value));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalStateException("Invalid FX rate entry " + key + "=" + value, e);
+                }
+            }
+        }
+        return of(Currency.getInstance(baseCode.trim()), rates);
+    }
+
+    public Currency getBase() {
+        return base;
+    }
+
+    public Set<Currency> getCurrencies() {
+        return rates.keySet();
+    }
+
+    public boolean supports(Currency currency) {
+        return indexes.containsKey(currency);
+    }
+
+    /**
+     * Units of {@code currency} that one unit of the base currency buys.
+     */
+    public BigDecimal getRate(Currency currency) {
+        BigDecimal rate = rates.get(currency);
+        if (rate == null) {
+            throw new IllegalArgumentException("No FX rate for " + currency);
+        }
+        return rate;
+    }
+
+    /**
+     * Converts an amount in minor units of {@code from} to minor units of {@code to}, rounding
+     * half away from zero.
+     */
+    public long convertMinor(long amountMinor, Currency from, Currency to) {
+        if (from == to) {
+            return amountMinor;
+        }
+        long factor = factor(from, to);
+        long scaled;
+        try {
+            scaled = Math.multiplyExact(amountMinor, factor);
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(amountMinor).multiply(BigDecimal.valueOf(factor))
+                    .movePointLeft(FACTOR_SCALE)
+                    .setScale(0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        }
+        long whole = scaled / FACTOR_ONE;
+        long remainder = scaled % FACTOR_ONE;
+        if (Math.abs(remainder) >= FACTOR_ONE / 2) {
+            whole += Long.signum(scaled);
+        }
+        return whole;
+    }
+
+    /**
+     * Converts an amount and returns it at {@code to}'s usual number of decimal places.
+     */
+    public BigDecimal convert(BigDecimal amount, Currency from, Currency to) {
+        if (from == to) {
+            return amount;
+        }
+        long amountMinor = amount.movePointRight(fractionDigits[index(from)])
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+        return BigDecimal.valueOf(convertMinor(amountMinor, from, to), fractionDigits[index(to)]);
+    }
+
+    private long factor(Currency from, Currency to) {
+        return factors[index(from) * fractionDigits.length + index(to)];
+    }
+
+    private int index(Currency currency) {
+        Integer index = indexes.get(currency);
+        if (index == null) {
+            throw new IllegalArgumentException("No FX rate for " + currency);
+        }
+        return index;
+    }
+
+    static int fractionDigits(Currency currency) {
+        return Math.max(0, currency.getDefaultFractionDigits());
+    }
+
+    @Override
+    public String toString() {
+        return "FxRateTable{base=" + base + ", rates=" + rates + "}";
+    }
+}
@@ -0,0 +1,268 @@
+package splitwise.loadtest;
+
+import splitwise.model.Expense;
+import splitwise.model.Split;
+import splitwise.model.SplitType;
+import splitwise.model.User;
+import splitwise.service.AsyncExpenseService;
+import splitwise.service.BalanceService;
+import splitwise.service.ExpenseService;
+import splitwise.service.GroupService;
+import splitwise.service.UserService;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the same expense-only workload three times and prints the throughput of each: with every
+ * client calling {@link ExpenseService#addExpense} under one shared lock, through
+ * {@link AsyncExpenseService} with each client waiting for its expense before sending the next,
+ * and through {@link AsyncExpenseService} with up to {@value #PIPELINED_IN_FLIGHT_PER_CLIENT}
+ * expenses in flight per client. The first two have the same number of requests outstanding, so
+ * they compare the two write paths; the pipelined run shows what batching adds when clients do
+ * not wait. Every run ends by checking the shared ledger against the stored expenses.
+ *
+ * <pre>
+ * java -cp target/classes splitwise.loadtest.AsyncThroughputComparison --groups=2000 --clients=8 --duration=30
+ * </pre>
+ */
+public class AsyncThroughputComparison {
+    private static final int PIPELINED_IN_FLIGHT_PER_CLIENT = 256;
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final int MAX_MAILBOX_SIZE = 1_024;
+
+    private final WorkloadConfig config;
+
+    public AsyncThroughputComparison(WorkloadConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        WorkloadConfig config = WorkloadConfig.fromArgs(args);
+        System.out.println("Throughput comparison: " + config);
+        AsyncThroughputComparison comparison = new AsyncThroughputComparison(config);
+        boolean consistent = comparison.runLocked()
+                & comparison.runAsync("async", 1)
+                & comparison.runAsync("async pipelined", PIPELINED_IN_FLIGHT_PER_CLIENT);
+        if (!consistent) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return true if the ledger matched the stored expenses afterwards
+     */
+    public boolean runLocked() throws InterruptedException {
+        Engine engine = new Engine();
+        ReentrantLock lock = new ReentrantLock();
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+
+        long elapsedNanos = runClients(engine, random -> () -> {
+            Request request = engine.nextRequest(random);
+            lock.lock();
+            try {
+                engine.expenseService.addExpense("bench", request.amount, request.payerId,
+                        request.splits, request.splitType, request.groupId);
+                completed.increment();
+            } catch (RuntimeException e) {
+                errors.increment();
+            } finally {
+                lock.unlock();
+            }
+        }, () -> { });
+        return report("lock-based", completed.sum(), errors.sum(), 0, elapsedNanos, engine);
+    }
+
+    /**
+     * @param maxInFlightPerClient how many expenses each client may have submitted but not yet
+     *                             seen complete; 1 makes every client wait for each expense
+     * @return true if the ledger matched the stored expenses afterwards
+     */
+    public boolean runAsync(String name, int maxInFlightPerClient) throws InterruptedException {
+        Engine engine = new Engine();
+        ExecutorService executor = Executors.newFixedThreadPool(config.getClients());
+        AsyncExpenseService async = new AsyncExpenseService(engine.expenseService, engine.balanceService,
+                executor, MAX_BATCH_SIZE, MAX_MAILBOX_SIZE);
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        List<Deque<CompletableFuture<Expense>>> windows = new ArrayList<>();
+
+        long elapsedNanos = runClients(engine, random -> {
+            Deque<CompletableFuture<Expense>> inFlight = new ArrayDeque<>();
+            synchronized (windows) {
+                windows.add(inFlight);
+            }
+            return () -> {
+                if (inFlight.size() >= maxInFlightPerClient) {
+                    await(inFlight.poll(), completed, errors, rejected);
+                }
+                Request request = engine.nextRequest(random);
+                inFlight.add(async.addExpense("bench", request.amount, request.payerId,
+                        request.splits, request.splitType, request.groupId));
+            };
+        }, () -> {
+            synchronized (windows) {
+                for (Deque<CompletableFuture<Expense>> inFlight : windows) {
+                    while (!inFlight.isEmpty()) {
+                        await(inFlight.poll(), completed, errors, rejected);
+                    }
+                }
+            }
+        });
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        return report(name, completed.sum(), errors.sum(), rejected.sum(), elapsedNanos, engine);
+    }
+
+    private static void await(CompletableFuture<Expense> future,
+                              LongAdder completed, LongAdder errors, LongAdder rejected) {
+        try {
+            future.join();
+            completed.increment();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                rejected.increment();
+            } else {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * Starts one thread per client, each repeatedly running its step until the duration elapses,
+     * then runs {@code drain} and returns the elapsed time including the drain.
+     */
+    private long runClients(Engine engine, ClientFactory factory, Runnable drain) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        long start = System.nanoTime();
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < config.getClients(); i++) {
+            Runnable step = factory.create(engine.generator.newClientRandom(i));
+            Thread client = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    step.run();
+                }
+            }, "bench-client-" + i);
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        drain.run();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Compares every user's net balance in the shared ledger with the net implied by the
+     * expenses stored in the shared expense service, and checks that every completed expense
+     * was stored.
+     */
+    private static boolean report(String name, long completed, long errors, long rejected,
+                                  long elapsedNanos, Engine engine) {
+        Map<String, Long> ledgerNetMinor = new HashMap<>();
+        engine.balanceService.forEachBalance((debtorId, creditorId, amount) -> {
+            long minor = toMinor(amount);
+            ledgerNetMinor.merge(creditorId, minor, Long::sum);
+            ledgerNetMinor.merge(debtorId, -minor, Long::sum);
+        });
+        Collection<Expense> stored = engine.expenseService.getExpenses();
+        Map<String, Long> expectedNetMinor = new HashMap<>();
+        for (Expense expense : stored) {
+            for (Split split : expense.getSplits()) {
+                if (!split.getUser().equals(expense.getPaidBy())) {
+                    long share = toMinor(split.getValue());
+                    expectedNetMinor.merge(expense.getPaidBy().getId(), share, Long::sum);
+                    expectedNetMinor.merge(split.getUser().getId(), -share, Long::sum);
+                }
+            }
+        }
+
+        int mismatches = 0;
+        for (User user : engine.generator.getUsers()) {
+            long ledger = ledgerNetMinor.getOrDefault(user.getId(), 0L);
+            if (ledger != expectedNetMinor.getOrDefault(user.getId(), 0L)) {
+                mismatches++;
+            }
+        }
+        boolean consistent = mismatches == 0 && stored.size() == completed;
+
+        System.out.printf("%-16s %10.0f ops/s  completed %d, errors %d, rejected %d, mismatches %d -> %s%n",
+                name, completed / (elapsedNanos / 1e9), completed, errors, rejected, mismatches,
+                consistent ? "PASS" : "FAIL");
+        return consistent;
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    private interface ClientFactory {
+        Runnable create(Random random);
+    }
+
+    private final class Engine {
+        private final UserService userService = new UserService();
+        private final GroupService groupService = new GroupService(userService);
+        private final BalanceService balanceService = new BalanceService();
+        private final ExpenseService expenseService = new ExpenseService(groupService, balanceService);
+        private final WorkloadGenerator generator = new WorkloadGenerator(config, userService, groupService);
+
+        Request nextRequest(Random random) {
+            int groupIndex = generator.nextGroup(random);
+            List<User> members = generator.getMembers(groupIndex);
+            User payer = members.get(random.nextInt(members.size()));
+            long amountMinor = generator.nextAmountMinor(random);
+            int kind = random.nextInt(3);
+            List<Split> splits;
+            SplitType splitType;
+            if (kind == 0) {
+                splits = generator.equalSplits(members);
+                splitType = SplitType.EQUAL;
+            } else if (kind == 1) {
+                splits = generator.exactSplits(members, amountMinor, random);
+                splitType = SplitType.EXACT;
+            } else {
+                splits = generator.percentSplits(members, random);
+                splitType = SplitType.PERCENT;
+            }
+            return new Request(generator.getGroup(groupIndex).getId(), payer.getId(),
+                    BigDecimal.valueOf(amountMinor, 2), splits, splitType);
+        }
+    }
+
+    private static final class Request {
+        final String groupId;
+        final String payerId;
+        final BigDecimal amount;
+        final List<Split> splits;
+        final SplitType splitType;
+
+        Request(String groupId, String payerId, BigDecimal amount, List<Split> splits, SplitType splitType) {
+            this.groupId = groupId;
+            this.payerId = payerId;
+            this.amount = amount;
+            this.splits = splits;
+            this.splitType = splitType;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package splitwise.loadtest;
+
+public enum OperationType {
+    EQUAL_EXPENSE,
+    EXACT_EXPENSE,
+    PERCENT_EXPENSE,
+    SETTLEMENT,
+    READ,
+    SIMPLIFY
+}
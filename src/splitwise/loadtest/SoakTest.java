@@ -0,0 +1,399 @@
+package splitwise.loadtest;
+
+import splitwise.model.Split;
+import splitwise.model.SplitType;
+import splitwise.model.User;
+import splitwise.service.BalanceService;
+import splitwise.service.ExpenseService;
+import splitwise.service.GroupService;
+import splitwise.service.UserService;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drives the expense and balance services with N concurrent clients for a fixed duration,
+ * printing throughput, latency percentiles, heap and GC figures every interval. At the end it
+ * checks the ledger against an expected one built from the generated inputs alone: each
+ * accepted expense's shares are recomputed here from its amount and split spec, and each
+ * accepted settlement is applied at the amount requested. Every pair of users must end up with
+ * the same net debt in both.
+ *
+ * <p>The services are not thread-safe, so clients share one lock around each call, which is
+ * what an embedding application would have to do today.
+ *
+ * <pre>
+ * java -cp target/classes splitwise.loadtest.SoakTest --clients=8 --duration=3600 --seed=7
+ * </pre>
+ */
+public class SoakTest {
+    private final WorkloadConfig config;
+    private final UserService userService = new UserService();
+    private final GroupService groupService = new GroupService(userService);
+    private final BalanceService balanceService = new BalanceService();
+    private final ExpenseService expenseService = new ExpenseService(groupService, balanceService);
+    private final WorkloadGenerator generator;
+    private final ReentrantLock engineLock = new ReentrantLock();
+
+    // Guarded by engineLock. Pair key -> what the lower user id owes the higher one, in cents
+    private final Map<String, Long> expectedNetMinor = new HashMap<>();
+
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+    private final LatencyHistogram readLatency = new LatencyHistogram();
+    private final LongAdder[] operationCounts = new LongAdder[OperationType.values().length];
+    private final LongAdder errors = new LongAdder();
+    private final AtomicReference<Throwable> firstError = new AtomicReference<>();
+    private volatile boolean running = true;
+
+    public SoakTest(WorkloadConfig config) {
+        this.config = config;
+        this.generator = new WorkloadGenerator(config, userService, groupService);
+        for (int i = 0; i < operationCounts.length; i++) {
+            operationCounts[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        WorkloadConfig config = WorkloadConfig.fromArgs(args);
+        System.out.println("Soak test: " + config);
+        boolean consistent = new SoakTest(config).run();
+        if (!consistent) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return true if the ledger passed the end-of-run consistency checks
+     */
+    public boolean run() throws InterruptedException {
+        Reporter reporter = new Reporter();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "soak-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.printHeader();
+        scheduler.scheduleAtFixedRate(reporter::report,
+                config.getReportIntervalSeconds(), config.getReportIntervalSeconds(), TimeUnit.SECONDS);
+
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < config.getClients(); i++) {
+            Random random = generator.newClientRandom(i);
+            Thread client = new Thread(() -> runClient(random), "soak-client-" + i);
+            clients.add(client);
+            client.start();
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(config.getDurationSeconds()));
+        running = false;
+        for (Thread client : clients) {
+            client.join();
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        reporter.report();
+        reporter.printSummary();
+
+        if (firstError.get() != null) {
+            System.out.println("First error: " + firstError.get());
+        }
+        return checkLedger();
+    }
+
+    private void runClient(Random random) {
+        while (running) {
+            OperationType operation = generator.nextOperation(random);
+            long start = System.nanoTime();
+            try {
+                execute(operation, random);
+            } catch (RuntimeException e) {
+                errors.increment();
+                firstError.compareAndSet(null, e);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (operation == OperationType.READ || operation == OperationType.SIMPLIFY) {
+                readLatency.record(elapsed);
+            } else {
+                writeLatency.record(elapsed);
+            }
+            operationCounts[operation.ordinal()].increment();
+        }
+    }
+
+    private void execute(OperationType operation, Random random) {
+        switch (operation) {
+            case EQUAL_EXPENSE:
+            case EXACT_EXPENSE:
+            case PERCENT_EXPENSE:
+                addExpense(operation, random);
+                break;
+            case SETTLEMENT:
+                settle(random);
+                break;
+            case READ:
+                read(random);
+                break;
+            case SIMPLIFY:
+                engineLock.lock();
+                try {
+                    balanceService.getAllBalances();
+                } finally {
+                    engineLock.unlock();
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private void addExpense(OperationType operation, Random random) {
+        int groupIndex = generator.nextGroup(random);
+        List<User> members = generator.getMembers(groupIndex);
+        User payer = members.get(random.nextInt(members.size()));
+        long amountMinor = generator.nextAmountMinor(random);
+        List<Split> splits;
+        SplitType splitType;
+        if (operation == OperationType.EQUAL_EXPENSE) {
+            splits = generator.equalSplits(members);
+            splitType = SplitType.EQUAL;
+        } else if (operation == OperationType.EXACT_EXPENSE) {
+            splits = generator.exactSplits(members, amountMinor, random);
+            splitType = SplitType.EXACT;
+        } else {
+            splits = generator.percentSplits(members, random);
+            splitType = SplitType.PERCENT;
+        }
+
+        long[] sharesMinor = expectedSharesMinor(splits, splitType, amountMinor);
+
+        engineLock.lock();
+        try {
+            expenseService.addExpense("soak", BigDecimal.valueOf(amountMinor, 2),
+                    payer.getId(), splits, splitType, generator.getGroup(groupIndex).getId());
+            for (int i = 0; i < splits.size(); i++) {
+                recordDebt(splits.get(i).getUser().getId(), payer.getId(), sharesMinor[i]);
+            }
+        } finally {
+            engineLock.unlock();
+        }
+    }
+
+    /**
+     * Each participant's share in cents, worked out from the split spec with integer arithmetic:
+     * EQUAL and PERCENT shares are rounded half up to the cent, EXACT shares are taken as given.
+     */
+    private static long[] expectedSharesMinor(List<Split> splits, SplitType splitType, long amountMinor) {
+        long[] shares = new long[splits.size()];
+        for (int i = 0; i < shares.length; i++) {
+            switch (splitType) {
+                case EQUAL:
+                    shares[i] = divideHalfUp(amountMinor, splits.size());
+                    break;
+                case EXACT:
+                    shares[i] = toMinor(splits.get(i).getValue());
+                    break;
+                case PERCENT:
+                    shares[i] = divideHalfUp(amountMinor * splits.get(i).getValue().longValueExact(), 100);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown split type " + splitType);
+            }
+        }
+        return shares;
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        return (2 * dividend + divisor) / (2 * divisor);
+    }
+
+    private void recordDebt(String debtorId, String creditorId, long minor) {
+        int order = debtorId.compareTo(creditorId);
+        if (order < 0) {
+            expectedNetMinor.merge(pairKey(debtorId, creditorId), minor, Long::sum);
+        } else if (order > 0) {
+            expectedNetMinor.merge(pairKey(creditorId, debtorId), -minor, Long::sum);
+        }
+    }
+
+    private static String pairKey(String lowerId, String higherId) {
+        return lowerId + " -> " + higherId;
+    }
+
+    private void settle(Random random) {
+        List<User> members = generator.getMembers(generator.nextGroup(random));
+        User from = members.get(random.nextInt(members.size()));
+        User to = members.get(random.nextInt(members.size()));
+        if (from.equals(to)) {
+            return;
+        }
+        engineLock.lock();
+        try {
+            BigDecimal owed = balanceService.getBalance(from.getId(), to.getId());
+            if (owed.signum() <= 0) {
+                return;
+            }
+            BigDecimal amount = owed.multiply(BigDecimal.valueOf(random.nextDouble()))
+                    .setScale(2, RoundingMode.DOWN)
+                    .max(new BigDecimal("0.01"))
+                    .min(owed);
+            balanceService.settleBalance(from.getId(), to.getId(), amount);
+            // Paying down a debt is a debt in the other direction
+            recordDebt(to.getId(), from.getId(), toMinor(amount));
+        } finally {
+            engineLock.unlock();
+        }
+    }
+
+    private void read(Random random) {
+        User user = generator.nextUser(random);
+        engineLock.lock();
+        try {
+            if (random.nextBoolean()) {
+                balanceService.getBalancesForUser(user.getId());
+            } else {
+                balanceService.getBalance(user.getId(), generator.nextUser(random).getId());
+            }
+        } finally {
+            engineLock.unlock();
+        }
+    }
+
+    private boolean checkLedger() {
+        Map<String, Long> ledgerNetMinor = new HashMap<>();
+        balanceService.forEachBalance((debtorId, creditorId, amount) -> {
+            int order = debtorId.compareTo(creditorId);
+            if (order < 0) {
+                ledgerNetMinor.merge(pairKey(debtorId, creditorId), toMinor(amount), Long::sum);
+            } else if (order > 0) {
+                ledgerNetMinor.merge(pairKey(creditorId, debtorId), -toMinor(amount), Long::sum);
+            }
+        });
+
+        Set<String> pairs = new TreeSet<>(expectedNetMinor.keySet());
+        pairs.addAll(ledgerNetMinor.keySet());
+        int mismatches = 0;
+        for (String pair : pairs) {
+            long ledger = ledgerNetMinor.getOrDefault(pair, 0L);
+            long expected = expectedNetMinor.getOrDefault(pair, 0L);
+            if (ledger != expected) {
+                if (mismatches++ < 10) {
+                    System.out.println("  Mismatch for " + pair + ": ledger " +
+                            BigDecimal.valueOf(ledger, 2) + ", expected " + BigDecimal.valueOf(expected, 2));
+                }
+            }
+        }
+
+        System.out.println("\n=== Ledger check ===");
+        System.out.println("User pairs checked: " + pairs.size());
+        System.out.println("Pairs with unexpected net debt: " + mismatches);
+        boolean consistent = mismatches == 0;
+        System.out.println(consistent ? "PASS" : "FAIL");
+        return consistent;
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    private class Reporter {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final long startNanos = System.nanoTime();
+        private final long[] totalWrites = new long[LatencyHistogram.BUCKET_COUNT];
+        private final long[] totalReads = new long[LatencyHistogram.BUCKET_COUNT];
+        private long lastNanos = startNanos;
+        private long lastGcMillis = gcMillis();
+        private long lastGcCount = gcCount();
+
+        synchronized void printHeader() {
+            System.out.printf("%8s %10s %10s %10s %10s %10s %10s %10s %9s %7s %7s%n",
+                    "elapsed", "ops/s", "w-p50us", "w-p99us", "w-p999us", "w-maxus",
+                    "r-p50us", "r-p99us", "heapMB", "gcMs", "gcN");
+        }
+
+        synchronized void report() {
+            long now = System.nanoTime();
+            long[] writes = writeLatency.drain();
+            long[] reads = readLatency.drain();
+            LatencyHistogram.addInto(totalWrites, writes);
+            LatencyHistogram.addInto(totalReads, reads);
+            long operations = LatencyHistogram.total(writes) + LatencyHistogram.total(reads);
+            double seconds = Math.max(1e-9, (now - lastNanos) / 1e9);
+            long gcMillis = gcMillis();
+            long gcCount = gcCount();
+
+            System.out.printf("%7ds %10.0f %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %9d %7d %7d%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - startNanos),
+                    operations / seconds,
+                    micros(LatencyHistogram.percentile(writes, 50)),
+                    micros(LatencyHistogram.percentile(writes, 99)),
+                    micros(LatencyHistogram.percentile(writes, 99.9)),
+                    micros(LatencyHistogram.max(writes)),
+                    micros(LatencyHistogram.percentile(reads, 50)),
+                    micros(LatencyHistogram.percentile(reads, 99)),
+                    memory.getHeapMemoryUsage().getUsed() / (1024 * 1024),
+                    gcMillis - lastGcMillis,
+                    gcCount - lastGcCount);
+
+            lastNanos = now;
+            lastGcMillis = gcMillis;
+            lastGcCount = gcCount;
+        }
+
+        synchronized void printSummary() {
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            long operations = LatencyHistogram.total(totalWrites) + LatencyHistogram.total(totalReads);
+            System.out.println("\n=== Summary ===");
+            System.out.printf("Operations: %d (%.0f ops/s), errors: %d%n", operations, operations / seconds, errors.sum());
+            for (OperationType type : OperationType.values()) {
+                System.out.printf("  %-16s %d%n", type, operationCounts[type.ordinal()].sum());
+            }
+            System.out.printf("Write latency us: p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                    micros(LatencyHistogram.percentile(totalWrites, 50)),
+                    micros(LatencyHistogram.percentile(totalWrites, 99)),
+                    micros(LatencyHistogram.percentile(totalWrites, 99.9)),
+                    micros(LatencyHistogram.max(totalWrites)));
+            System.out.printf("Read latency us:  p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                    micros(LatencyHistogram.percentile(totalReads, 50)),
+                    micros(LatencyHistogram.percentile(totalReads, 99)),
+                    micros(LatencyHistogram.percentile(totalReads, 99.9)),
+                    micros(LatencyHistogram.max(totalReads)));
+            System.out.printf("Total GC time: %d ms over %d collections%n", gcMillis(), gcCount());
+        }
+
+        private double micros(long nanos) {
+            return nanos / 1000.0;
+        }
+
+        private long gcMillis() {
+            long total = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                total += Math.max(0, gc.getCollectionTime());
+            }
+            return total;
+        }
+
+        private long gcCount() {
+            long total = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                total += Math.max(0, gc.getCollectionCount());
+            }
+            return total;
+        }
+    }
+}
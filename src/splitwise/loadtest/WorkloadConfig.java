@@ -0,0 +1,240 @@
+package splitwise.loadtest;
+
+/**
+ * Knobs for a soak run. Operation mix weights are relative, not percentages.
+ */
+public class WorkloadConfig {
+    private final long seed;
+    private final int users;
+    private final int groups;
+    private final int maxGroupSize;
+    private final double groupSizeSkew;
+    private final int clients;
+    private final long durationSeconds;
+    private final long reportIntervalSeconds;
+    private final int equalWeight;
+    private final int exactWeight;
+    private final int percentWeight;
+    private final int settlementWeight;
+    private final int readWeight;
+    private final int simplifyWeight;
+
+    private WorkloadConfig(Builder builder) {
+        this.seed = builder.seed;
+        this.users = builder.users;
+        this.groups = builder.groups;
+        this.maxGroupSize = builder.maxGroupSize;
+        this.groupSizeSkew = builder.groupSizeSkew;
+        this.clients = builder.clients;
+        this.durationSeconds = builder.durationSeconds;
+        this.reportIntervalSeconds = builder.reportIntervalSeconds;
+        this.equalWeight = builder.equalWeight;
+        this.exactWeight = builder.exactWeight;
+        this.percentWeight = builder.percentWeight;
+        this.settlementWeight = builder.settlementWeight;
+        this.readWeight = builder.readWeight;
+        this.simplifyWeight = builder.simplifyWeight;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds a config from {@code --name=value} arguments; unknown names are rejected.
+     */
+    public static WorkloadConfig fromArgs(String[] args) {
+        Builder builder = builder();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            builder.set(name, value);
+        }
+        return builder.build();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getGroups() {
+        return groups;
+    }
+
+    public int getMaxGroupSize() {
+        return maxGroupSize;
+    }
+
+    public double getGroupSizeSkew() {
+        return groupSizeSkew;
+    }
+
+    public int getClients() {
+        return clients;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public long getReportIntervalSeconds() {
+        return reportIntervalSeconds;
+    }
+
+    public int getEqualWeight() {
+        return equalWeight;
+    }
+
+    public int getExactWeight() {
+        return exactWeight;
+    }
+
+    public int getPercentWeight() {
+        return percentWeight;
+    }
+
+    public int getSettlementWeight() {
+        return settlementWeight;
+    }
+
+    public int getReadWeight() {
+        return readWeight;
+    }
+
+    public int getSimplifyWeight() {
+        return simplifyWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkloadConfig{" +
+                "seed=" + seed +
+                ", users=" + users +
+                ", groups=" + groups +
+                ", maxGroupSize=" + maxGroupSize +
+                ", groupSizeSkew=" + groupSizeSkew +
+                ", clients=" + clients +
+                ", durationSeconds=" + durationSeconds +
+                ", reportIntervalSeconds=" + reportIntervalSeconds +
+                ", mix(equal/exact/percent/settle/read/simplify)=" + equalWeight + "/" + exactWeight + "/" +
+                percentWeight + "/" + settlementWeight + "/" + readWeight + "/" + simplifyWeight +
+                '}';
+    }
+
+    public static class Builder {
+        private long seed = 42L;
+        private int users = 1_000;
+        private int groups = 200;
+        private int maxGroupSize = 50;
+        private double groupSizeSkew = 1.2;
+        private int clients = 4;
+        private long durationSeconds = 60;
+        private long reportIntervalSeconds = 5;
+        private int equalWeight = 50;
+        private int exactWeight = 15;
+        private int percentWeight = 15;
+        private int settlementWeight = 10;
+        private int readWeight = 60;
+        private int simplifyWeight = 1;
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder users(int users) {
+            this.users = users;
+            return this;
+        }
+
+        public Builder groups(int groups) {
+            this.groups = groups;
+            return this;
+        }
+
+        public Builder maxGroupSize(int maxGroupSize) {
+            this.maxGroupSize = maxGroupSize;
+            return this;
+        }
+
+        /**
+         * Zipf exponent for group sizes; 0 is uniform, larger values favour small groups.
+         */
+        public Builder groupSizeSkew(double groupSizeSkew) {
+            this.groupSizeSkew = groupSizeSkew;
+            return this;
+        }
+
+        public Builder clients(int clients) {
+            this.clients = clients;
+            return this;
+        }
+
+        public Builder durationSeconds(long durationSeconds) {
+            this.durationSeconds = durationSeconds;
+            return this;
+        }
+
+        public Builder reportIntervalSeconds(long reportIntervalSeconds) {
+            this.reportIntervalSeconds = reportIntervalSeconds;
+            return this;
+        }
+
+        public Builder mix(int equal, int exact, int percent, int settlement, int read, int simplify) {
+            this.equalWeight = equal;
+            this.exactWeight = exact;
+            this.percentWeight = percent;
+            this.settlementWeight = settlement;
+            this.readWeight = read;
+            this.simplifyWeight = simplify;
+            return this;
+        }
+
+        Builder set(String name, String value) {
+            switch (name) {
+                case "seed": return seed(Long.parseLong(value));
+                case "users": return users(Integer.parseInt(value));
+                case "groups": return groups(Integer.parseInt(value));
+                case "maxGroupSize": return maxGroupSize(Integer.parseInt(value));
+                case "groupSizeSkew": return groupSizeSkew(Double.parseDouble(value));
+                case "clients": return clients(Integer.parseInt(value));
+                case "duration": return durationSeconds(Long.parseLong(value));
+                case "reportInterval": return reportIntervalSeconds(Long.parseLong(value));
+                case "equal": equalWeight = Integer.parseInt(value); return this;
+                case "exact": exactWeight = Integer.parseInt(value); return this;
+                case "percent": percentWeight = Integer.parseInt(value); return this;
+                case "settle": settlementWeight = Integer.parseInt(value); return this;
+                case "read": readWeight = Integer.parseInt(value); return this;
+                case "simplify": simplifyWeight = Integer.parseInt(value); return this;
+                default: throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+
+        public WorkloadConfig build() {
+            if (users < 2 || groups < 1 || clients < 1) {
+                throw new IllegalArgumentException("Need at least 2 users, 1 group and 1 client");
+            }
+            if (maxGroupSize < 2 || maxGroupSize > users) {
+                throw new IllegalArgumentException("maxGroupSize must be between 2 and users");
+            }
+            if (durationSeconds <= 0 || reportIntervalSeconds <= 0) {
+                throw new IllegalArgumentException("duration and reportInterval must be positive");
+            }
+            if (equalWeight < 0 || exactWeight < 0 || percentWeight < 0
+                    || settlementWeight < 0 || readWeight < 0 || simplifyWeight < 0) {
+                throw new IllegalArgumentException("Operation weights must not be negative");
+            }
+            if (equalWeight + exactWeight + percentWeight + settlementWeight + readWeight + simplifyWeight == 0) {
+                throw new IllegalArgumentException("At least one operation weight must be positive");
+            }
+            return new WorkloadConfig(this);
+        }
+    }
+}
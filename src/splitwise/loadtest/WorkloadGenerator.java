@@ -0,0 +1,186 @@
+package splitwise.loadtest;
+
+import splitwise.model.EqualSplit;
+import splitwise.model.ExactSplit;
+import splitwise.model.Group;
+import splitwise.model.PercentSplit;
+import splitwise.model.Split;
+import splitwise.model.User;
+import splitwise.service.GroupService;
+import splitwise.service.UserService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded source of users, groups and operations for a soak run. The population is built
+ * once from the config seed; every client draws operations from its own {@link Random}
+ * derived from the same seed, so a run is reproducible per client.
+ */
+public class WorkloadGenerator {
+    private static final long MIN_AMOUNT_MINOR = 100;
+    private static final long MAX_AMOUNT_MINOR = 50_000;
+
+    private final WorkloadConfig config;
+    private final List<User> users = new ArrayList<>();
+    private final List<Group> groups = new ArrayList<>();
+    private final List<List<User>> groupMembers = new ArrayList<>();
+    private final OperationType[] operations = OperationType.values();
+    private final int[] cumulativeWeights;
+
+    public WorkloadGenerator(WorkloadConfig config, UserService userService, GroupService groupService) {
+        this.config = config;
+        Random random = new Random(config.getSeed());
+
+        for (int i = 0; i < config.getUsers(); i++) {
+            users.add(userService.createUser("LU" + i, "Load User " + i));
+        }
+
+        double[] sizeCdf = zipfCdf(config.getMaxGroupSize() - 1, config.getGroupSizeSkew());
+        for (int g = 0; g < config.getGroups(); g++) {
+            Group group = groupService.createGroup("LG" + g, "Load Group " + g);
+            int size = 2 + sample(sizeCdf, random);
+            List<User> shuffled = new ArrayList<>(users);
+            Collections.shuffle(shuffled, random);
+            List<User> members = new ArrayList<>(shuffled.subList(0, size));
+            for (User member : members) {
+                groupService.addUserToGroup(group.getId(), member.getId());
+            }
+            groups.add(group);
+            groupMembers.add(members);
+        }
+
+        int[] weights = {
+                config.getEqualWeight(),
+                config.getExactWeight(),
+                config.getPercentWeight(),
+                config.getSettlementWeight(),
+                config.getReadWeight(),
+                config.getSimplifyWeight()
+        };
+        cumulativeWeights = new int[weights.length];
+        int sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    public Random newClientRandom(int clientIndex) {
+        return new Random(config.getSeed() * 1_000_003L + clientIndex);
+    }
+
+    public OperationType nextOperation(Random random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    public int nextGroup(Random random) {
+        return random.nextInt(groups.size());
+    }
+
+    public Group getGroup(int index) {
+        return groups.get(index);
+    }
+
+    public List<User> getMembers(int groupIndex) {
+        return groupMembers.get(groupIndex);
+    }
+
+    public List<User> getUsers() {
+        return Collections.unmodifiableList(users);
+    }
+
+    public User nextUser(Random random) {
+        return users.get(random.nextInt(users.size()));
+    }
+
+    public long nextAmountMinor(Random random) {
+        return MIN_AMOUNT_MINOR + (long) (random.nextDouble() * (MAX_AMOUNT_MINOR - MIN_AMOUNT_MINOR));
+    }
+
+    public List<Split> equalSplits(List<User> members) {
+        List<Split> splits = new ArrayList<>(members.size());
+        for (User member : members) {
+            splits.add(new EqualSplit(member));
+        }
+        return splits;
+    }
+
+    /**
+     * Random non-negative amounts in minor units that add up to {@code amountMinor} exactly.
+     */
+    public List<Split> exactSplits(List<User> members, long amountMinor, Random random) {
+        long[] parts = randomPartition(amountMinor, members.size(), random);
+        List<Split> splits = new ArrayList<>(members.size());
+        for (int i = 0; i < members.size(); i++) {
+            splits.add(new ExactSplit(members.get(i), BigDecimal.valueOf(parts[i], 2)));
+        }
+        return splits;
+    }
+
+    /**
+     * Random whole percentages that add up to 100.
+     */
+    public List<Split> percentSplits(List<User> members, Random random) {
+        long[] parts = randomPartition(100, members.size(), random);
+        List<Split> splits = new ArrayList<>(members.size());
+        for (int i = 0; i < members.size(); i++) {
+            splits.add(new PercentSplit(members.get(i), BigDecimal.valueOf(parts[i])));
+        }
+        return splits;
+    }
+
+    private static long[] randomPartition(long total, int parts, Random random) {
+        double[] weights = new double[parts];
+        double weightSum = 0;
+        for (int i = 0; i < parts; i++) {
+            weights[i] = random.nextDouble() + 0.1;
+            weightSum += weights[i];
+        }
+        long[] result = new long[parts];
+        long assigned = 0;
+        for (int i = 0; i < parts; i++) {
+            result[i] = (long) Math.floor(total * weights[i] / weightSum);
+            assigned += result[i];
+        }
+        result[random.nextInt(parts)] += total - assigned;
+        return result;
+    }
+
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += 1.0 / Math.pow(k, exponent);
+            cdf[k - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, Random random) {
+        double u = random.nextDouble();
+        int low = 0;
+        int high = cdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cdf[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -3,13 +3,18 @@ package splitwise.model;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Currency;
 import java.util.List;
 import java.util.Objects;
 
 public class Expense {
+    /** Currency of expenses, settlements and groups that do not name one. */
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
     private final String id;
     private final String description;
     private final BigDecimal amount;
+    private final Currency currency;
     private final User paidBy;
     private final List<Split> splits;
     private final SplitType splitType;
@@ -22,9 +27,21 @@ public class Expense {
                    List<Split> splits,
                    SplitType splitType,
                    Group group) {
+        this(id, description, amount, DEFAULT_CURRENCY, paidBy, splits, splitType, group);
+    }
+
+    public Expense(String id,
+                   String description,
+                   BigDecimal amount,
+                   Currency currency,
+                   User paidBy,
+                   List<Split> splits,
+                   SplitType splitType,
+                   Group group) {
         this.id = Objects.requireNonNull(id, "id must not be null");
         this.description = description;
         this.amount = Objects.requireNonNull(amount, "amount must not be null");
+        this.currency = Objects.requireNonNull(currency, "currency must not be null");
         this.paidBy = Objects.requireNonNull(paidBy, "paidBy must not be null");
         this.splits = Collections.unmodifiableList(new ArrayList<>(Objects.requireNonNull(splits, "splits must not be null")));
         this.splitType = Objects.requireNonNull(splitType, "splitType must not be null");
@@ -43,6 +60,13 @@ public class Expense {
         return amount;
     }
 
+    /**
+     * Currency of the amount and of every split value.
+     */
+    public Currency getCurrency() {
+        return currency;
+    }
+
     public User getPaidBy() {
         return paidBy;
     }
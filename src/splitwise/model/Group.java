@@ -1,6 +1,7 @@
 package splitwise.model;
 
 import java.util.Collections;
+import java.util.Currency;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -8,6 +9,7 @@ import java.util.Set;
 public class Group {
     private final String id;
     private String name;
+    private Currency displayCurrency = Expense.DEFAULT_CURRENCY;
     private final Set<User> members = new HashSet<>();
 
     public Group(String id, String name) {
@@ -27,6 +29,18 @@ public class Group {
         this.name = Objects.requireNonNull(name, "name must not be null");
     }
 
+    /**
+     * Currency balances are shown in for this group. It does not change the currency expenses
+     * are booked in; methods that take no currency always use {@link Expense#DEFAULT_CURRENCY}.
+     */
+    public Currency getDisplayCurrency() {
+        return displayCurrency;
+    }
+
+    public void setDisplayCurrency(Currency displayCurrency) {
+        this.displayCurrency = Objects.requireNonNull(displayCurrency, "displayCurrency must not be null");
+    }
+
     public void addMember(User user) {
         members.add(Objects.requireNonNull(user, "user must not be null"));
     }
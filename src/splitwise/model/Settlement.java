@@ -0,0 +1,45 @@
+package splitwise.model;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Objects;
+
+public class Settlement {
+    private final long id;
+    private final String fromUserId;
+    private final String toUserId;
+    private final BigDecimal amount;
+    private final Currency currency;
+
+    public Settlement(long id, String fromUserId, String toUserId, BigDecimal amount) {
+        this(id, fromUserId, toUserId, amount, Expense.DEFAULT_CURRENCY);
+    }
+
+    public Settlement(long id, String fromUserId, String toUserId, BigDecimal amount, Currency currency) {
+        this.id = id;
+        this.fromUserId = Objects.requireNonNull(fromUserId, "fromUserId must not be null");
+        this.toUserId = Objects.requireNonNull(toUserId, "toUserId must not be null");
+        this.amount = Objects.requireNonNull(amount, "amount must not be null");
+        this.currency = Objects.requireNonNull(currency, "currency must not be null");
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getFromUserId() {
+        return fromUserId;
+    }
+
+    public String getToUserId() {
+        return toUserId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+}
@@ -0,0 +1,64 @@
+package splitwise.readmodel;
+
+import splitwise.event.BalanceEventType;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * One balance change as seen by a single user. A positive delta means the user's position
+ * improved (they are owed more or owe less).
+ */
+public class ActivityEntry {
+    private final BalanceEventType type;
+    private final String expenseId;
+    private final long settlementId;
+    private final String groupId;
+    private final String counterpartyId;
+    private final BigDecimal delta;
+    private final Currency currency;
+
+    ActivityEntry(BalanceEventType type,
+                  String expenseId,
+                  long settlementId,
+                  String groupId,
+                  String counterpartyId,
+                  BigDecimal delta,
+                  Currency currency) {
+        this.type = type;
+        this.expenseId = expenseId;
+        this.settlementId = settlementId;
+        this.groupId = groupId;
+        this.counterpartyId = counterpartyId;
+        this.delta = delta;
+        this.currency = currency;
+    }
+
+    public BalanceEventType getType() {
+        return type;
+    }
+
+    public String getExpenseId() {
+        return expenseId;
+    }
+
+    public long getSettlementId() {
+        return settlementId;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getCounterpartyId() {
+        return counterpartyId;
+    }
+
+    public BigDecimal getDelta() {
+        return delta;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+}
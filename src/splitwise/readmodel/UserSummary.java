@@ -0,0 +1,119 @@
+package splitwise.readmodel;
+
+import splitwise.fx.FxRateTable;
+import splitwise.model.Expense;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, denormalized profile-page view of one user's position. Figures are kept per
+ * currency; the methods without a currency argument report {@link Expense#DEFAULT_CURRENCY}.
+ */
+public class UserSummary {
+    private final String userId;
+    private final Map<Currency, BigDecimal> totalOwed;
+    private final Map<Currency, BigDecimal> totalOwing;
+    private final Map<Currency, Map<String, BigDecimal>> netByGroup;
+    private final List<ActivityEntry> recentActivity;
+    private final long sequence;
+
+    UserSummary(String userId,
+                Map<Currency, BigDecimal> totalOwed,
+                Map<Currency, BigDecimal> totalOwing,
+                Map<Currency, Map<String, BigDecimal>> netByGroup,
+                List<ActivityEntry> recentActivity,
+                long sequence) {
+        this.userId = userId;
+        this.totalOwed = Collections.unmodifiableMap(totalOwed);
+        this.totalOwing = Collections.unmodifiableMap(totalOwing);
+        this.netByGroup = Collections.unmodifiableMap(netByGroup);
+        this.recentActivity = Collections.unmodifiableList(recentActivity);
+        this.sequence = sequence;
+    }
+
+    static UserSummary empty(String userId) {
+        return new UserSummary(userId, Collections.emptyMap(), Collections.emptyMap(),
+                Collections.emptyMap(), Collections.emptyList(), -1L);
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * What others owe this user.
+     */
+    public BigDecimal getTotalOwed() {
+        return getTotalOwed(Expense.DEFAULT_CURRENCY);
+    }
+
+    public BigDecimal getTotalOwed(Currency currency) {
+        return totalOwed.getOrDefault(currency, BigDecimal.ZERO);
+    }
+
+    /**
+     * What this user owes others.
+     */
+    public BigDecimal getTotalOwing() {
+        return getTotalOwing(Expense.DEFAULT_CURRENCY);
+    }
+
+    public BigDecimal getTotalOwing(Currency currency) {
+        return totalOwing.getOrDefault(currency, BigDecimal.ZERO);
+    }
+
+    /**
+     * Currencies this user has ever had a balance in.
+     */
+    public Set<Currency> getCurrencies() {
+        Set<Currency> currencies = new LinkedHashSet<>(totalOwed.keySet());
+        currencies.addAll(totalOwing.keySet());
+        return currencies;
+    }
+
+    /**
+     * Owed minus owing across all currencies, converted to {@code displayCurrency} at read time.
+     */
+    public BigDecimal getNet(Currency displayCurrency, FxRateTable rates) {
+        BigDecimal net = BigDecimal.ZERO;
+        for (Currency currency : getCurrencies()) {
+            BigDecimal amount = getTotalOwed(currency).subtract(getTotalOwing(currency));
+            if (amount.signum() != 0) {
+                net = net.add(rates.convert(amount, currency, displayCurrency));
+            }
+        }
+        return net;
+    }
+
+    /**
+     * Net expense position per group; positive means the group owes this user.
+     * Settlements are not tied to a group and only show up in the totals.
+     */
+    public Map<String, BigDecimal> getNetByGroup() {
+        return getNetByGroup(Expense.DEFAULT_CURRENCY);
+    }
+
+    public Map<String, BigDecimal> getNetByGroup(Currency currency) {
+        return netByGroup.getOrDefault(currency, Collections.emptyMap());
+    }
+
+    /**
+     * Most recent changes first.
+     */
+    public List<ActivityEntry> getRecentActivity() {
+        return recentActivity;
+    }
+
+    /**
+     * Event sequence this summary reflects, or -1 if no event touched the user yet.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+}
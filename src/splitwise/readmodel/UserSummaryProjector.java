@@ -0,0 +1,187 @@
+package splitwise.readmodel;
+
+import splitwise.event.BalanceEvent;
+import splitwise.event.BalanceEventHandler;
+import splitwise.event.BalanceEventRingBuffer;
+import splitwise.event.BalanceEventType;
+import splitwise.event.BatchEventProcessor;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains {@link UserSummary} records from the balance event feed on its own thread.
+ * The write path only pays for publishing to the ring buffer; all aggregation happens here.
+ * Snapshots are rebuilt for the users touched by a batch once per batch and swapped into a
+ * concurrent map, so {@link #getSummary(String)} is a single lookup.
+ *
+ * <p>The projector only gates the writer between {@link #start()} and {@link #stop()}, and sees
+ * the events published in that window. If it falls a full ring behind, the writer drops it and it
+ * stops; its summaries then stay as they were and reads report {@link UserSummaryRead#UNKNOWN_STALENESS}.
+ * A projector cannot be restarted; build a new one to resync.
+ */
+public class UserSummaryProjector implements BalanceEventHandler {
+    private static final int DEFAULT_RECENT_ACTIVITY_LIMIT = 20;
+
+    private final BalanceEventRingBuffer ringBuffer;
+    private final int recentActivityLimit;
+    private final Map<String, UserSummary> summaries = new ConcurrentHashMap<>();
+
+    // Projector-thread state
+    private final Map<String, UserState> states = new HashMap<>();
+    private final Set<UserState> dirty = new HashSet<>();
+
+    private volatile BatchEventProcessor processor;
+    private Thread thread;
+
+    public UserSummaryProjector(BalanceEventRingBuffer ringBuffer) {
+        this(ringBuffer, DEFAULT_RECENT_ACTIVITY_LIMIT);
+    }
+
+    public UserSummaryProjector(BalanceEventRingBuffer ringBuffer, int recentActivityLimit) {
+        if (recentActivityLimit < 0) {
+            throw new IllegalArgumentException("recentActivityLimit must not be negative");
+        }
+        this.ringBuffer = ringBuffer;
+        this.recentActivityLimit = recentActivityLimit;
+    }
+
+    public synchronized void start() {
+        if (processor != null) {
+            throw new IllegalStateException("Projector already started");
+        }
+        processor = ringBuffer.createConsumer(this);
+        thread = new Thread(processor, "user-summary-projector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (processor == null) {
+            return;
+        }
+        processor.halt();
+        if (thread != null) {
+            thread.join();
+            thread = null;
+        }
+    }
+
+    public UserSummaryRead getSummary(String userId) {
+        BatchEventProcessor current = processor;
+        if (current == null) {
+            return new UserSummaryRead(UserSummary.empty(userId), ringBuffer.getCursor() + 1,
+                    UserSummaryRead.UNKNOWN_STALENESS);
+        }
+        long applied = current.getSequence().get();
+        UserSummary summary = summaries.get(userId);
+        long pending = ringBuffer.getCursor() - applied;
+        long staleness = 0;
+        if (pending > 0) {
+            // Unapplied slots cannot be overwritten while this consumer gates the writer. A stopped
+            // or dropped processor no longer gates it, so the slot may belong to a later lap by now;
+            // checking after the read covers a halt or drop that races with it.
+            long publishNanos = ringBuffer.get(applied + 1).getPublishNanos();
+            staleness = current.isRunning()
+                    ? Math.max(0, System.nanoTime() - publishNanos)
+                    : UserSummaryRead.UNKNOWN_STALENESS;
+        }
+        return new UserSummaryRead(summary != null ? summary : UserSummary.empty(userId), pending, staleness);
+    }
+
+    @Override
+    public void onEvent(BalanceEvent event, long sequence, boolean endOfBatch) {
+        BigDecimal amount = event.getAmount();
+        Currency currency = event.getCurrency();
+        UserState debtor = state(event.getDebtorId());
+        UserState creditor = state(event.getCreditorId());
+
+        if (event.getType() == BalanceEventType.EXPENSE_SHARE) {
+            debtor.owing.merge(currency, amount, BigDecimal::add);
+            creditor.owed.merge(currency, amount, BigDecimal::add);
+            debtor.netByGroup(currency).merge(event.getGroupId(), amount.negate(), BigDecimal::add);
+            creditor.netByGroup(currency).merge(event.getGroupId(), amount, BigDecimal::add);
+            debtor.record(event, event.getCreditorId(), amount.negate(), sequence);
+            creditor.record(event, event.getDebtorId(), amount, sequence);
+        } else if (event.getType() == BalanceEventType.ADJUSTMENT) {
+            debtor.owing.merge(currency, amount, BigDecimal::add);
+            creditor.owed.merge(currency, amount, BigDecimal::add);
+            debtor.record(event, event.getCreditorId(), amount.negate(), sequence);
+            creditor.record(event, event.getDebtorId(), amount, sequence);
+        } else {
+            debtor.owing.merge(currency, amount.negate(), BigDecimal::add);
+            creditor.owed.merge(currency, amount.negate(), BigDecimal::add);
+            debtor.record(event, event.getCreditorId(), amount, sequence);
+            creditor.record(event, event.getDebtorId(), amount.negate(), sequence);
+        }
+        dirty.add(debtor);
+        dirty.add(creditor);
+
+        if (endOfBatch) {
+            for (UserState state : dirty) {
+                summaries.put(state.userId, state.snapshot());
+            }
+            dirty.clear();
+        }
+    }
+
+    private UserState state(String userId) {
+        return states.computeIfAbsent(userId, UserState::new);
+    }
+
+    private class UserState {
+        private final String userId;
+        private final Map<Currency, Map<String, BigDecimal>> netByGroup = new HashMap<>();
+        private final ArrayDeque<ActivityEntry> recent = new ArrayDeque<>();
+        private final Map<Currency, BigDecimal> owed = new HashMap<>();
+        private final Map<Currency, BigDecimal> owing = new HashMap<>();
+        private long sequence = -1L;
+
+        UserState(String userId) {
+            this.userId = userId;
+        }
+
+        void record(BalanceEvent event, String counterpartyId, BigDecimal delta, long sequence) {
+            this.sequence = sequence;
+            if (recentActivityLimit == 0) {
+                return;
+            }
+            if (recent.size() == recentActivityLimit) {
+                recent.removeLast();
+            }
+            recent.addFirst(new ActivityEntry(event.getType(), event.getExpenseId(), event.getSettlementId(),
+                    event.getGroupId(), counterpartyId, delta, event.getCurrency()));
+        }
+
+        Map<String, BigDecimal> netByGroup(Currency currency) {
+            return netByGroup.computeIfAbsent(currency, k -> new HashMap<>());
+        }
+
+        UserSummary snapshot() {
+            Map<Currency, Map<String, BigDecimal>> groupsByCurrency = new HashMap<>();
+            for (Map.Entry<Currency, Map<String, BigDecimal>> entry : netByGroup.entrySet()) {
+                Map<String, BigDecimal> groups = new HashMap<>(entry.getValue());
+                Iterator<BigDecimal> values = groups.values().iterator();
+                while (values.hasNext()) {
+                    if (values.next().signum() == 0) {
+                        values.remove();
+                    }
+                }
+                if (!groups.isEmpty()) {
+                    groupsByCurrency.put(entry.getKey(), Collections.unmodifiableMap(groups));
+                }
+            }
+            return new UserSummary(userId, new HashMap<>(owed), new HashMap<>(owing), groupsByCurrency,
+                    new ArrayList<>(recent), sequence);
+        }
+    }
+}
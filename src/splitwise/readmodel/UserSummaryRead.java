@@ -0,0 +1,42 @@
+package splitwise.readmodel;
+
+/**
+ * A read-model answer together with how far behind the write path it may be.
+ */
+public class UserSummaryRead {
+    /** Reported as staleness when the projector is not running and the age cannot be known. */
+    public static final long UNKNOWN_STALENESS = -1L;
+
+    private final UserSummary summary;
+    private final long pendingEvents;
+    private final long stalenessNanos;
+
+    UserSummaryRead(UserSummary summary, long pendingEvents, long stalenessNanos) {
+        this.summary = summary;
+        this.pendingEvents = pendingEvents;
+        this.stalenessNanos = stalenessNanos;
+    }
+
+    public UserSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Events published by the write path that the projector had not applied at read time.
+     */
+    public long getPendingEvents() {
+        return pendingEvents;
+    }
+
+    /**
+     * Age of the oldest unapplied event at read time; zero when the projector is caught up, or
+     * {@link #UNKNOWN_STALENESS} if events are pending while the projector is not running.
+     */
+    public long getStalenessNanos() {
+        return stalenessNanos;
+    }
+
+    public boolean isCurrent() {
+        return pendingEvents == 0;
+    }
+}
@@ -0,0 +1,6 @@
+package splitwise.report;
+
+public enum ReportFormat {
+    CSV,
+    JSON_LINES
+}
@@ -0,0 +1,193 @@
+package splitwise.report;
+
+import splitwise.model.Expense;
+import splitwise.model.Split;
+import splitwise.service.BalanceService;
+import splitwise.service.BalanceVisitor;
+import splitwise.service.ExpenseService;
+import splitwise.service.UserService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Currency;
+import java.util.Map;
+
+/**
+ * Streams balances, simplified settlement plans and expense history as CSV or JSON lines.
+ * All exports share one direct buffer, so a single instance must not be used from several threads.
+ */
+public class ReportService {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] BALANCE_COLUMNS =
+            {"debtorId", "debtorName", "creditorId", "creditorName", "amount", "currency"};
+    private static final String[] EXPENSE_COLUMNS =
+            {"expenseId", "description", "groupId", "splitType", "paidById", "amount", "currency", "participantId", "share"};
+
+    private final UserService userService;
+    private final BalanceService balanceService;
+    private final ExpenseService expenseService;
+    private final ByteBuffer buffer;
+
+    public ReportService(UserService userService, BalanceService balanceService, ExpenseService expenseService) {
+        this(userService, balanceService, expenseService, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ReportService(UserService userService,
+                         BalanceService balanceService,
+                         ExpenseService expenseService,
+                         int bufferSize) {
+        this.userService = userService;
+        this.balanceService = balanceService;
+        this.expenseService = expenseService;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Writes every raw ledger edge exactly as tracked by {@link BalanceService}, one currency
+     * after another.
+     */
+    public void exportBalances(WritableByteChannel channel, ReportFormat format) throws IOException {
+        ReportWriter writer = new ReportWriter(channel, buffer, format);
+        writer.header(BALANCE_COLUMNS);
+        try {
+            for (Currency currency : balanceService.getCurrencies()) {
+                balanceService.forEachBalance(currency, balanceWriter(writer, currency));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    public void exportBalancesForUser(String userId, WritableByteChannel channel, ReportFormat format) throws IOException {
+        userService.getUserByIdOrThrow(userId);
+        ReportWriter writer = new ReportWriter(channel, buffer, format);
+        writer.header(BALANCE_COLUMNS);
+        try {
+            for (Currency currency : balanceService.getCurrencies()) {
+                balanceService.forEachBalanceForUser(userId, currency, balanceWriter(writer, currency));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the simplified settlement plan, simplified per currency. The plan itself is computed
+     * in memory by {@link BalanceService#getAllBalancesByCurrency()}; only the encoding is streamed.
+     */
+    public void exportSimplifiedBalances(WritableByteChannel channel, ReportFormat format) throws IOException {
+        ReportWriter writer = new ReportWriter(channel, buffer, format);
+        writer.header(BALANCE_COLUMNS);
+        for (Map.Entry<Currency, Map<String, Map<String, BigDecimal>>> plan
+                : balanceService.getAllBalancesByCurrency().entrySet()) {
+            for (Map.Entry<String, Map<String, BigDecimal>> entry : plan.getValue().entrySet()) {
+                for (Map.Entry<String, BigDecimal> balanceEntry : entry.getValue().entrySet()) {
+                    writeBalance(writer, entry.getKey(), balanceEntry.getKey(), balanceEntry.getValue(), plan.getKey());
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes one record per split, repeating the expense columns on each line. Expenses come out
+     * in commit order, so repeated exports of the same history are identical.
+     */
+    public void exportExpenses(WritableByteChannel channel, ReportFormat format) throws IOException {
+        ReportWriter writer = new ReportWriter(channel, buffer, format);
+        writer.header(EXPENSE_COLUMNS);
+        try {
+            expenseService.forEachCommittedExpense(expense -> {
+                try {
+                    writeExpense(writer, expense);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    public void exportBalances(Path file, ReportFormat format) throws IOException {
+        try (FileChannel channel = openForWrite(file)) {
+            exportBalances(channel, format);
+        }
+    }
+
+    public void exportBalancesForUser(String userId, Path file, ReportFormat format) throws IOException {
+        try (FileChannel channel = openForWrite(file)) {
+            exportBalancesForUser(userId, channel, format);
+        }
+    }
+
+    public void exportSimplifiedBalances(Path file, ReportFormat format) throws IOException {
+        try (FileChannel channel = openForWrite(file)) {
+            exportSimplifiedBalances(channel, format);
+        }
+    }
+
+    public void exportExpenses(Path file, ReportFormat format) throws IOException {
+        try (FileChannel channel = openForWrite(file)) {
+            exportExpenses(channel, format);
+        }
+    }
+
+    private BalanceVisitor balanceWriter(ReportWriter writer, Currency currency) {
+        return (debtorId, creditorId, amount) -> {
+            try {
+                writeBalance(writer, debtorId, creditorId, amount, currency);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private void writeBalance(ReportWriter writer,
+                              String debtorId,
+                              String creditorId,
+                              BigDecimal amount,
+                              Currency currency) throws IOException {
+        writer.beginRecord();
+        writer.field("debtorId", debtorId);
+        writer.field("debtorName", userService.getUserByIdOrThrow(debtorId).getName());
+        writer.field("creditorId", creditorId);
+        writer.field("creditorName", userService.getUserByIdOrThrow(creditorId).getName());
+        writer.field("amount", amount);
+        writer.field("currency", currency.getCurrencyCode());
+        writer.endRecord();
+    }
+
+    private static void writeExpense(ReportWriter writer, Expense expense) throws IOException {
+        for (Split split : expense.getSplits()) {
+            writer.beginRecord();
+            writer.field("expenseId", expense.getId());
+            writer.field("description", expense.getDescription());
+            writer.field("groupId", expense.getGroup().getId());
+            writer.field("splitType", expense.getSplitType().name());
+            writer.field("paidById", expense.getPaidBy().getId());
+            writer.field("amount", expense.getAmount());
+            writer.field("currency", expense.getCurrency().getCurrencyCode());
+            writer.field("participantId", split.getUser().getId());
+            writer.field("share", split.getValue());
+            writer.endRecord();
+        }
+    }
+
+    private static FileChannel openForWrite(Path file) throws IOException {
+        return FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+}
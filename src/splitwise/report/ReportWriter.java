@@ -0,0 +1,239 @@
+package splitwise.report;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Encodes report records straight into a caller-supplied (usually direct) buffer and
+ * drains it to a channel whenever it fills up, so memory use does not depend on report size.
+ * Numbers are written digit by digit instead of going through {@code BigDecimal.toString}.
+ * Not thread-safe.
+ */
+public class ReportWriter {
+    private static final int MAX_NUMBER_LENGTH = 24;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final ReportFormat format;
+    private final byte[] scratch = new byte[MAX_NUMBER_LENGTH];
+    private int fieldCount;
+
+    public ReportWriter(WritableByteChannel channel, ByteBuffer buffer, ReportFormat format) {
+        this.channel = Objects.requireNonNull(channel, "channel must not be null");
+        this.buffer = Objects.requireNonNull(buffer, "buffer must not be null");
+        this.format = Objects.requireNonNull(format, "format must not be null");
+        if (buffer.capacity() < MAX_NUMBER_LENGTH) {
+            throw new IllegalArgumentException("buffer must hold at least " + MAX_NUMBER_LENGTH + " bytes");
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Writes the CSV header line. JSON lines carry field names per record, so this is a no-op there.
+     */
+    public void header(String... names) throws IOException {
+        if (format != ReportFormat.CSV) {
+            return;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                putByte(',');
+            }
+            putCsvString(names[i]);
+        }
+        putByte('\n');
+    }
+
+    public void beginRecord() throws IOException {
+        fieldCount = 0;
+        if (format == ReportFormat.JSON_LINES) {
+            putByte('{');
+        }
+    }
+
+    public void endRecord() throws IOException {
+        if (format == ReportFormat.JSON_LINES) {
+            putByte('}');
+        }
+        putByte('\n');
+    }
+
+    public void field(String name, String value) throws IOException {
+        beginField(name);
+        if (value == null) {
+            if (format == ReportFormat.JSON_LINES) {
+                putAscii("null");
+            }
+        } else if (format == ReportFormat.JSON_LINES) {
+            putJsonString(value);
+        } else {
+            putCsvString(value);
+        }
+    }
+
+    public void field(String name, long value) throws IOException {
+        beginField(name);
+        putScaledLong(value, 0);
+    }
+
+    public void field(String name, BigDecimal value) throws IOException {
+        beginField(name);
+        if (value == null) {
+            if (format == ReportFormat.JSON_LINES) {
+                putAscii("null");
+            }
+            return;
+        }
+        int scale = value.scale();
+        if (scale < 0 || scale > 18 || value.precision() > 18) {
+            // Out of long range: rare enough that the String fallback does not matter
+            putAscii(value.toPlainString());
+            return;
+        }
+        putScaledLong(value.unscaledValue().longValue(), scale);
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void beginField(String name) throws IOException {
+        if (fieldCount++ > 0) {
+            putByte(',');
+        }
+        if (format == ReportFormat.JSON_LINES) {
+            putJsonString(name);
+            putByte(':');
+        }
+    }
+
+    private void putScaledLong(long unscaled, int scale) throws IOException {
+        if (unscaled == Long.MIN_VALUE) {
+            putAscii(BigDecimal.valueOf(unscaled, scale).toPlainString());
+            return;
+        }
+        boolean negative = unscaled < 0;
+        long magnitude = negative ? -unscaled : unscaled;
+        int pos = scratch.length;
+        int digits = 0;
+        do {
+            if (digits == scale && scale > 0) {
+                scratch[--pos] = '.';
+            }
+            scratch[--pos] = (byte) ('0' + (magnitude % 10));
+            magnitude /= 10;
+            digits++;
+        } while (magnitude != 0 || digits <= scale);
+        if (negative) {
+            scratch[--pos] = '-';
+        }
+        ensure(scratch.length - pos);
+        buffer.put(scratch, pos, scratch.length - pos);
+    }
+
+    private void putCsvString(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            putUtf8(value);
+            return;
+        }
+        putByte('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                putByte('"');
+            }
+            putChar(value, i);
+            if (Character.isHighSurrogate(c) && i + 1 < value.length()) {
+                i++;
+            }
+        }
+        putByte('"');
+    }
+
+    private void putJsonString(String value) throws IOException {
+        putByte('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                putByte('\\');
+                putByte(c);
+            } else if (c < 0x20) {
+                putAscii("\\u00");
+                putByte(Character.forDigit(c >> 4, 16));
+                putByte(Character.forDigit(c & 0xF, 16));
+            } else {
+                putChar(value, i);
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()) {
+                    i++;
+                }
+            }
+        }
+        putByte('"');
+    }
+
+    private void putUtf8(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            putChar(value, i);
+            if (Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length()) {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Encodes the code point at {@code index} as UTF-8. Callers skip the low surrogate of a pair.
+     */
+    private void putChar(String value, int index) throws IOException {
+        int cp = value.codePointAt(index);
+        ensure(4);
+        if (cp < 0x80) {
+            buffer.put((byte) cp);
+        } else if (cp < 0x800) {
+            buffer.put((byte) (0xC0 | (cp >> 6)));
+            buffer.put((byte) (0x80 | (cp & 0x3F)));
+        } else if (cp < 0x10000) {
+            if (Character.isSurrogate((char) cp)) {
+                cp = '?';
+                buffer.put((byte) cp);
+                return;
+            }
+            buffer.put((byte) (0xE0 | (cp >> 12)));
+            buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (cp & 0x3F)));
+        } else {
+            buffer.put((byte) (0xF0 | (cp >> 18)));
+            buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (cp & 0x3F)));
+        }
+    }
+
+    private void putAscii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            putByte(value.charAt(i));
+        }
+    }
+
+    private void putByte(int b) throws IOException {
+        ensure(1);
+        buffer.put((byte) b);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package splitwise.repository;
+
+import splitwise.model.Group;
+
+import java.util.Collection;
+import java.util.Currency;
+import java.util.Map;
+import java.util.Optional;
+
+public interface GroupRepository {
+    /**
+     * Loads the group together with its members.
+     */
+    Optional<Group> findById(String id);
+
+    /**
+     * Loads the groups with the given ids, with their members, in as few round trips as
+     * possible. Ids that do not exist are absent from the result.
+     */
+    Map<String, Group> findAllByIds(Collection<String> ids);
+
+    /**
+     * Loads every group with its members. Only meant for admin and export paths.
+     */
+    Map<String, Group> findAll();
+
+    void save(Group group);
+
+    void addMember(String groupId, String userId);
+
+    void updateDisplayCurrency(String groupId, Currency displayCurrency);
+}
@@ -0,0 +1,38 @@
+package splitwise.repository;
+
+import splitwise.model.Expense;
+
+import java.util.Optional;
+
+/**
+ * Durable record of the expense each idempotency key committed, so that retries are still
+ * answered after a restart. The whole expense is stored with the key, so a retry never depends
+ * on the expense still being held in memory or on its id not having been reused.
+ */
+public interface IdempotencyKeyRepository {
+    /**
+     * Rebuilds the expense recorded for the key.
+     */
+    Optional<Expense> findExpense(String idempotencyKey);
+
+    /**
+     * Records the key together with the expense unless the key is already present, in a single
+     * transaction. The key column is unique, so of several processes racing on one key exactly
+     * one wins.
+     *
+     * @return false if the key was already recorded, by this or another process
+     */
+    boolean saveIfAbsent(String idempotencyKey, Expense expense);
+
+    /**
+     * Forgets a key whose expense could not be committed after it was recorded.
+     */
+    void delete(String idempotencyKey);
+
+    /**
+     * Removes keys recorded before the given time.
+     *
+     * @return number of keys removed
+     */
+    int deleteOlderThan(long epochMillis);
+}
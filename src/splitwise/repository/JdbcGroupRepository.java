@@ -0,0 +1,190 @@
+package splitwise.repository;
+
+import splitwise.db.DbConnection;
+import splitwise.model.Group;
+import splitwise.model.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Loads groups and their member ids, then resolves all members of a group with a single bulk
+ * user lookup (normally {@code UserService::getUsersByIds}, which is itself cached).
+ */
+public class JdbcGroupRepository implements GroupRepository {
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private static final String FIND_BY_ID_SQL =
+            "SELECT g.id, g.name, g.display_currency, gm.user_id FROM `groups` g " +
+            "LEFT JOIN group_members gm ON gm.group_id = g.id WHERE g.id = ?";
+    private static final String FIND_ALL_SQL =
+            "SELECT g.id, g.name, g.display_currency, gm.user_id FROM `groups` g " +
+            "LEFT JOIN group_members gm ON gm.group_id = g.id";
+    private static final String INSERT_SQL = "INSERT INTO `groups` (id, name, display_currency) VALUES (?, ?, ?)";
+    private static final String INSERT_MEMBER_SQL =
+            "INSERT IGNORE INTO group_members (group_id, user_id) VALUES (?, ?)";
+    private static final String UPDATE_DISPLAY_CURRENCY_SQL = "UPDATE `groups` SET display_currency = ? WHERE id = ?";
+
+    private final Function<Collection<String>, Map<String, User>> userLoader;
+
+    public JdbcGroupRepository(Function<Collection<String>, Map<String, User>> userLoader) {
+        this.userLoader = Objects.requireNonNull(userLoader, "userLoader must not be null");
+    }
+
+    @Override
+    public Optional<Group> findById(String id) {
+        Map<String, Group> groups = new HashMap<>();
+        Map<String, List<String>> memberIds = new HashMap<>();
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(FIND_BY_ID_SQL)) {
+            statement.setString(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                readGroups(resultSet, groups, memberIds);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load group " + id, e);
+        }
+        attachMembers(groups, memberIds);
+        return Optional.ofNullable(groups.get(id));
+    }
+
+    @Override
+    public Map<String, Group> findAllByIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<String, Group> groups = new HashMap<>();
+        Map<String, List<String>> memberIds = new HashMap<>();
+        try (Connection connection = DbConnection.open()) {
+            for (int from = 0; from < distinct.size(); from += MAX_IDS_PER_QUERY) {
+                List<String> chunk = distinct.subList(from, Math.min(from + MAX_IDS_PER_QUERY, distinct.size()));
+                try (PreparedStatement statement = connection.prepareStatement(
+                        FIND_ALL_SQL + " WHERE g.id IN (" + placeholders(chunk.size()) + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        readGroups(resultSet, groups, memberIds);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load " + distinct.size() + " groups", e);
+        }
+        // One user lookup for the members of every group in the batch
+        attachMembers(groups, memberIds);
+        return groups;
+    }
+
+    @Override
+    public Map<String, Group> findAll() {
+        Map<String, Group> groups = new HashMap<>();
+        Map<String, List<String>> memberIds = new HashMap<>();
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(FIND_ALL_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            readGroups(resultSet, groups, memberIds);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load groups", e);
+        }
+        attachMembers(groups, memberIds);
+        return groups;
+    }
+
+    @Override
+    public void save(Group group) {
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            statement.setString(1, group.getId());
+            statement.setString(2, group.getName());
+            statement.setString(3, group.getDisplayCurrency().getCurrencyCode());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to save group " + group.getId(), e);
+        }
+    }
+
+    @Override
+    public void addMember(String groupId, String userId) {
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(INSERT_MEMBER_SQL)) {
+            statement.setString(1, groupId);
+            statement.setString(2, userId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to add user " + userId + " to group " + groupId, e);
+        }
+    }
+
+    @Override
+    public void updateDisplayCurrency(String groupId, Currency displayCurrency) {
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(UPDATE_DISPLAY_CURRENCY_SQL)) {
+            statement.setString(1, displayCurrency.getCurrencyCode());
+            statement.setString(2, groupId);
+            if (statement.executeUpdate() == 0) {
+                throw new IllegalArgumentException("Group with ID " + groupId + " not found");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to update display currency of group " + groupId, e);
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        return sql.toString();
+    }
+
+    private static void readGroups(ResultSet resultSet,
+                                   Map<String, Group> groups,
+                                   Map<String, List<String>> memberIds) throws SQLException {
+        while (resultSet.next()) {
+            String groupId = resultSet.getString("id");
+            if (!groups.containsKey(groupId)) {
+                Group group = new Group(groupId, resultSet.getString("name"));
+                group.setDisplayCurrency(Currency.getInstance(resultSet.getString("display_currency")));
+                groups.put(groupId, group);
+                memberIds.put(groupId, new ArrayList<>());
+            }
+            String userId = resultSet.getString("user_id");
+            if (userId != null) {
+                memberIds.get(groupId).add(userId);
+            }
+        }
+    }
+
+    private void attachMembers(Map<String, Group> groups, Map<String, List<String>> memberIds) {
+        List<String> allMemberIds = new ArrayList<>();
+        for (List<String> ids : memberIds.values()) {
+            allMemberIds.addAll(ids);
+        }
+        Map<String, User> users = userLoader.apply(allMemberIds);
+        for (Map.Entry<String, List<String>> entry : memberIds.entrySet()) {
+            Group group = groups.get(entry.getKey());
+            for (String userId : entry.getValue()) {
+                User user = users.get(userId);
+                if (user == null) {
+                    throw new IllegalStateException("Member " + userId + " of group " + group.getId() + " not found");
+                }
+                group.addMember(user);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package splitwise.repository;
+
+import splitwise.db.DbConnection;
+import splitwise.model.EqualSplit;
+import splitwise.model.ExactSplit;
+import splitwise.model.Expense;
+import splitwise.model.Group;
+import splitwise.model.PercentSplit;
+import splitwise.model.Split;
+import splitwise.model.SplitType;
+import splitwise.model.User;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Stores each key with its expense and splits in one transaction. Expenses are rebuilt with the
+ * group and a single bulk lookup of the payer and split users.
+ */
+public class JdbcIdempotencyKeyRepository implements IdempotencyKeyRepository {
+    private static final String FIND_SQL =
+            "SELECT k.expense_id, k.description, k.amount, k.currency, k.paid_by_user_id, k.group_id, " +
+            "k.split_type, s.user_id, s.value FROM idempotency_keys k " +
+            "LEFT JOIN idempotency_key_splits s ON s.idempotency_key = k.idempotency_key " +
+            "WHERE k.idempotency_key = ? ORDER BY s.position";
+    private static final String INSERT_SQL =
+            "INSERT INTO idempotency_keys (idempotency_key, expense_id, description, amount, currency, " +
+            "paid_by_user_id, group_id, split_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SPLIT_SQL =
+            "INSERT INTO idempotency_key_splits (idempotency_key, position, user_id, value) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_SQL =
+            "DELETE FROM idempotency_keys WHERE idempotency_key = ?";
+    private static final String DELETE_OLDER_THAN_SQL =
+            "DELETE FROM idempotency_keys WHERE created_at < ?";
+
+    private final Function<String, Group> groupLoader;
+    private final Function<Collection<String>, Map<String, User>> userLoader;
+
+    /**
+     * @param groupLoader normally {@code GroupService::getGroupByIdOrThrow}
+     * @param userLoader  normally {@code UserService::getUsersByIds}
+     */
+    public JdbcIdempotencyKeyRepository(Function<String, Group> groupLoader,
+                                        Function<Collection<String>, Map<String, User>> userLoader) {
+        this.groupLoader = Objects.requireNonNull(groupLoader, "groupLoader must not be null");
+        this.userLoader = Objects.requireNonNull(userLoader, "userLoader must not be null");
+    }
+
+    @Override
+    public Optional<Expense> findExpense(String idempotencyKey) {
+        String expenseId;
+        String description;
+        BigDecimal amount;
+        Currency currency;
+        String paidByUserId;
+        String groupId;
+        SplitType splitType;
+        List<String> splitUserIds = new ArrayList<>();
+        List<BigDecimal> splitValues = new ArrayList<>();
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(FIND_SQL)) {
+            statement.setString(1, idempotencyKey);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
+                }
+                expenseId = resultSet.getString("expense_id");
+                description = resultSet.getString("description");
+                amount = resultSet.getBigDecimal("amount");
+                currency = Currency.getInstance(resultSet.getString("currency"));
+                paidByUserId = resultSet.getString("paid_by_user_id");
+                groupId = resultSet.getString("group_id");
+                splitType = SplitType.valueOf(resultSet.getString("split_type"));
+                do {
+                    String userId = resultSet.getString("user_id");
+                    if (userId != null) {
+                        splitUserIds.add(userId);
+                        splitValues.add(resultSet.getBigDecimal("value"));
+                    }
+                } while (resultSet.next());
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to look up idempotency key " + idempotencyKey, e);
+        }
+
+        Group group = groupLoader.apply(groupId);
+        List<String> userIds = new ArrayList<>(splitUserIds);
+        userIds.add(paidByUserId);
+        Map<String, User> users = userLoader.apply(userIds);
+        List<Split> splits = new ArrayList<>(splitUserIds.size());
+        for (int i = 0; i < splitUserIds.size(); i++) {
+            splits.add(split(splitType, user(users, splitUserIds.get(i), expenseId), splitValues.get(i)));
+        }
+        return Optional.of(new Expense(expenseId, description, amount, currency,
+                user(users, paidByUserId, expenseId), splits, splitType, group));
+    }
+
+    @Override
+    public boolean saveIfAbsent(String idempotencyKey, Expense expense) {
+        try (Connection connection = DbConnection.open()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL);
+                 PreparedStatement splitStatement = connection.prepareStatement(INSERT_SPLIT_SQL)) {
+                statement.setString(1, idempotencyKey);
+                statement.setString(2, expense.getId());
+                statement.setString(3, expense.getDescription());
+                statement.setBigDecimal(4, expense.getAmount());
+                statement.setString(5, expense.getCurrency().getCurrencyCode());
+                statement.setString(6, expense.getPaidBy().getId());
+                statement.setString(7, expense.getGroup().getId());
+                statement.setString(8, expense.getSplitType().name());
+                statement.executeUpdate();
+
+                List<Split> splits = expense.getSplits();
+                for (int i = 0; i < splits.size(); i++) {
+                    splitStatement.setString(1, idempotencyKey);
+                    splitStatement.setInt(2, i);
+                    splitStatement.setString(3, splits.get(i).getUser().getId());
+                    splitStatement.setBigDecimal(4, splits.get(i).getValue());
+                    splitStatement.addBatch();
+                }
+                splitStatement.executeBatch();
+                connection.commit();
+                return true;
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Primary key conflict: the key was already committed
+                connection.rollback();
+                return false;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to save idempotency key " + idempotencyKey, e);
+        }
+    }
+
+    @Override
+    public void delete(String idempotencyKey) {
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+            statement.setString(1, idempotencyKey);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to delete idempotency key " + idempotencyKey, e);
+        }
+    }
+
+    @Override
+    public int deleteOlderThan(long epochMillis) {
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(DELETE_OLDER_THAN_SQL)) {
+            statement.setTimestamp(1, new Timestamp(epochMillis));
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to delete expired idempotency keys", e);
+        }
+    }
+
+    private static User user(Map<String, User> users, String userId, String expenseId) {
+        User user = users.get(userId);
+        if (user == null) {
+            throw new IllegalStateException("User " + userId + " of expense " + expenseId + " not found");
+        }
+        return user;
+    }
+
+    /**
+     * Splits are stored after processing, so every value is the share in the expense currency.
+     */
+    private static Split split(SplitType splitType, User user, BigDecimal share) {
+        Split split;
+        switch (splitType) {
+            case EQUAL:
+                split = new EqualSplit(user);
+                break;
+            case EXACT:
+                split = new ExactSplit(user, share);
+                break;
+            case PERCENT:
+                split = new PercentSplit(user, share);
+                break;
+            default:
+                throw new IllegalStateException("Unknown split type: " + splitType);
+        }
+        split.setValue(share);
+        return split;
+    }
+}
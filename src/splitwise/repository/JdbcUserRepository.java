@@ -0,0 +1,107 @@
+package splitwise.repository;
+
+import splitwise.db.DbConnection;
+import splitwise.model.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class JdbcUserRepository implements UserRepository {
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private static final String FIND_BY_ID_SQL = "SELECT id, name FROM users WHERE id = ?";
+    private static final String FIND_ALL_SQL = "SELECT id, name FROM users";
+    private static final String INSERT_SQL = "INSERT INTO users (id, name) VALUES (?, ?)";
+
+    @Override
+    public Optional<User> findById(String id) {
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(FIND_BY_ID_SQL)) {
+            statement.setString(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? Optional.of(toUser(resultSet)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load user " + id, e);
+        }
+    }
+
+    @Override
+    public Map<String, User> findAllByIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<String, User> users = new HashMap<>();
+        try (Connection connection = DbConnection.open()) {
+            for (int from = 0; from < distinct.size(); from += MAX_IDS_PER_QUERY) {
+                List<String> chunk = distinct.subList(from, Math.min(from + MAX_IDS_PER_QUERY, distinct.size()));
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT id, name FROM users WHERE id IN (" + placeholders(chunk.size()) + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            User user = toUser(resultSet);
+                            users.put(user.getId(), user);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load " + distinct.size() + " users", e);
+        }
+        return users;
+    }
+
+    @Override
+    public Map<String, User> findAll() {
+        Map<String, User> users = new HashMap<>();
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(FIND_ALL_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                User user = toUser(resultSet);
+                users.put(user.getId(), user);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load users", e);
+        }
+        return users;
+    }
+
+    @Override
+    public void save(User user) {
+        try (Connection connection = DbConnection.open();
+             PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            statement.setString(1, user.getId());
+            statement.setString(2, user.getName());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to save user " + user.getId(), e);
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        return sql.toString();
+    }
+
+    private static User toUser(ResultSet resultSet) throws SQLException {
+        return new User(resultSet.getString("id"), resultSet.getString("name"));
+    }
+}
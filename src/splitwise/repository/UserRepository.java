@@ -0,0 +1,24 @@
+package splitwise.repository;
+
+import splitwise.model.User;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+public interface UserRepository {
+    Optional<User> findById(String id);
+
+    /**
+     * Loads the users with the given ids in as few round trips as possible. Ids that do not
+     * exist are absent from the result.
+     */
+    Map<String, User> findAllByIds(Collection<String> ids);
+
+    /**
+     * Loads every user. Only meant for admin and export paths.
+     */
+    Map<String, User> findAll();
+
+    void save(User user);
+}
@@ -0,0 +1,94 @@
+package splitwise.service;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Chunked list that is only ever appended to, so a reader can take {@link #size()} as a version
+ * and later read every element below it without locking. Appends never move existing elements;
+ * only {@link #removeIf} does, and callers must keep it away from such readers.
+ */
+final class AppendOnlyLog<T> extends AbstractList<T> implements RandomAccess {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile Object[][] chunks = new Object[4][];
+    // Written after the element it covers, so reading it first publishes every slot below it
+    private volatile int size;
+
+    synchronized void append(T element) {
+        int index = size;
+        int chunk = index >>> CHUNK_BITS;
+        Object[][] current = chunks;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new Object[CHUNK_SIZE];
+        }
+        current[chunk][index & CHUNK_MASK] = element;
+        chunks = current;
+        size = index + 1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return (T) chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the first {@code count} elements, which must all have been appended already.
+     */
+    @SuppressWarnings("unchecked")
+    T[] copyPrefix(int count, T[] target) {
+        Object[][] current = chunks;
+        for (int copied = 0; copied < count; copied += CHUNK_SIZE) {
+            System.arraycopy(current[copied >>> CHUNK_BITS], 0, target, copied, Math.min(CHUNK_SIZE, count - copied));
+        }
+        return target;
+    }
+
+    /**
+     * Drops matching elements and compacts the rest in place, keeping their order.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized boolean removeIf(Predicate<? super T> filter) {
+        Object[][] current = chunks;
+        int count = size;
+        int kept = 0;
+        int i = 0;
+        try {
+            for (; i < count; i++) {
+                Object element = current[i >>> CHUNK_BITS][i & CHUNK_MASK];
+                if (!filter.test((T) element)) {
+                    current[kept >>> CHUNK_BITS][kept & CHUNK_MASK] = element;
+                    kept++;
+                }
+            }
+        } finally {
+            // If the filter threw, the element it failed on and everything after it are kept
+            for (; i < count; i++) {
+                current[kept >>> CHUNK_BITS][kept & CHUNK_MASK] = current[i >>> CHUNK_BITS][i & CHUNK_MASK];
+                kept++;
+            }
+            for (int j = kept; j < count; j++) {
+                current[j >>> CHUNK_BITS][j & CHUNK_MASK] = null;
+            }
+            size = kept;
+        }
+        return kept < count;
+    }
+}
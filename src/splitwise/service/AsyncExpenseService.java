@@ -0,0 +1,174 @@
+package splitwise.service;
+
+import splitwise.model.Expense;
+import splitwise.model.Split;
+import splitwise.model.SplitType;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous facade over {@link ExpenseService} and {@link BalanceService}. Writes for each
+ * group are queued on that group's mailbox, which keeps them in submission order and commits
+ * them in batches; settlements share one mailbox of their own. Every commit goes through the
+ * same services as synchronous calls, so async expenses show up in their balances, event feed,
+ * settlement log, reports, archiving and reconciliation like any other.
+ *
+ * <p>Validation and split processing run outside any lock. Only the commit is serialized, under
+ * {@link #getLedgerLock()}, once per drained batch. A mailbox that already holds
+ * {@code maxMailboxSize} operations rejects new ones with a future failed by
+ * {@link RejectedExecutionException}; callers should back off and retry.
+ *
+ * <p>Mailboxes are only created for groups that exist and are kept for as long as this service
+ * lives.
+ */
+public class AsyncExpenseService {
+    private final ExpenseService expenseService;
+    private final BalanceService balanceService;
+    private final Executor executor;
+    private final int maxBatchSize;
+    private final int maxMailboxSize;
+    private final Lock ledgerLock = new ReentrantLock();
+    private final Map<String, GroupMailbox> mailboxes = new ConcurrentHashMap<>();
+    private final GroupMailbox settlementMailbox;
+
+    public AsyncExpenseService(ExpenseService expenseService,
+                               BalanceService balanceService,
+                               Executor executor,
+                               int maxBatchSize,
+                               int maxMailboxSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        if (maxMailboxSize <= 0) {
+            throw new IllegalArgumentException("maxMailboxSize must be positive");
+        }
+        this.expenseService = expenseService;
+        this.balanceService = balanceService;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxMailboxSize = maxMailboxSize;
+        this.settlementMailbox = new GroupMailbox(expenseService, executor, ledgerLock, maxBatchSize, maxMailboxSize);
+    }
+
+    public CompletableFuture<Expense> addExpense(String description,
+                                                 BigDecimal amount,
+                                                 String paidByUserId,
+                                                 List<Split> splits,
+                                                 SplitType splitType,
+                                                 String groupId) {
+        return submit(groupId, GroupMailbox.Operation.expense(
+                () -> expenseService.prepareExpense(description, amount, paidByUserId, splits, splitType, groupId)));
+    }
+
+    public CompletableFuture<Expense> addExpense(SplitTemplate template,
+                                                 String description,
+                                                 BigDecimal amount,
+                                                 String paidByUserId) {
+        return submit(template.getGroup().getId(), GroupMailbox.Operation.expense(
+                () -> expenseService.prepareExpense(template, description, amount, paidByUserId)));
+    }
+
+    public CompletableFuture<Void> settleBalance(String fromUserId, String toUserId, BigDecimal amount) {
+        return settleBalance(fromUserId, toUserId, amount, Expense.DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Same checks as {@link BalanceService#settleBalance(String, String, BigDecimal, Currency)},
+     * made when the settlement is applied. Expenses still queued at that point are not counted,
+     * so wait for the futures of the expenses a settlement depends on before submitting it.
+     */
+    public CompletableFuture<Void> settleBalance(String fromUserId,
+                                                 String toUserId,
+                                                 BigDecimal amount,
+                                                 Currency currency) {
+        return offer(settlementMailbox, "settlements", GroupMailbox.Operation.ledger(() -> {
+            balanceService.settleBalance(fromUserId, toUserId, amount, currency);
+            return null;
+        }));
+    }
+
+    public BigDecimal getBalance(String fromUserId, String toUserId) {
+        return getBalance(fromUserId, toUserId, Expense.DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Reads the shared ledger under the ledger lock, so it waits for a commit in progress but
+     * not for operations that are still queued.
+     */
+    public BigDecimal getBalance(String fromUserId, String toUserId, Currency currency) {
+        ledgerLock.lock();
+        try {
+            return balanceService.getBalance(fromUserId, toUserId, currency);
+        } finally {
+            ledgerLock.unlock();
+        }
+    }
+
+    public Map<String, BigDecimal> getBalancesForUser(String userId) {
+        return getBalancesForUser(userId, Expense.DEFAULT_CURRENCY);
+    }
+
+    public Map<String, BigDecimal> getBalancesForUser(String userId, Currency currency) {
+        ledgerLock.lock();
+        try {
+            return balanceService.getBalancesForUser(userId, currency);
+        } finally {
+            ledgerLock.unlock();
+        }
+    }
+
+    public Optional<Expense> getExpenseById(String id) {
+        return expenseService.getExpenseById(id);
+    }
+
+    /**
+     * Lock held while a batch is committed. Synchronous callers that write to the same services
+     * must hold it too.
+     */
+    public Lock getLedgerLock() {
+        return ledgerLock;
+    }
+
+    public int getQueuedOperations() {
+        int total = settlementMailbox.size();
+        for (GroupMailbox mailbox : mailboxes.values()) {
+            total += mailbox.size();
+        }
+        return total;
+    }
+
+    private <T> CompletableFuture<T> submit(String groupId, GroupMailbox.Operation operation) {
+        GroupMailbox mailbox = mailboxes.get(groupId);
+        if (mailbox == null) {
+            try {
+                expenseService.getGroupService().getGroupByIdOrThrow(groupId);
+            } catch (RuntimeException e) {
+                CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+            mailbox = mailboxes.computeIfAbsent(groupId,
+                    k -> new GroupMailbox(expenseService, executor, ledgerLock, maxBatchSize, maxMailboxSize));
+        }
+        return offer(mailbox, "for group " + groupId, operation);
+    }
+
+    private static <T> CompletableFuture<T> offer(GroupMailbox mailbox, String name, GroupMailbox.Operation operation) {
+        if (!mailbox.offer(operation)) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new RejectedExecutionException("Mailbox " + name + " is full"));
+            return rejected;
+        }
+        return operation.future();
+    }
+}
@@ -0,0 +1,58 @@
+package splitwise.service;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * A ledger edge whose live amount differs from what the expense and settlement history implies.
+ */
+public class BalanceDrift {
+    private final String debtorId;
+    private final String creditorId;
+    private final Currency currency;
+    private final BigDecimal expected;
+    private final BigDecimal actual;
+
+    BalanceDrift(String debtorId, String creditorId, Currency currency, BigDecimal expected, BigDecimal actual) {
+        this.debtorId = debtorId;
+        this.creditorId = creditorId;
+        this.currency = currency;
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public String getDebtorId() {
+        return debtorId;
+    }
+
+    public String getCreditorId() {
+        return creditorId;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Amount recomputed from history.
+     */
+    public BigDecimal getExpected() {
+        return expected;
+    }
+
+    /**
+     * Amount held by the live ledger when the snapshot was taken.
+     */
+    public BigDecimal getActual() {
+        return actual;
+    }
+
+    public BigDecimal getDifference() {
+        return expected.subtract(actual);
+    }
+
+    @Override
+    public String toString() {
+        return debtorId + " -> " + creditorId + ": expected " + expected + ", actual " + actual + " " + currency;
+    }
+}
@@ -1,15 +1,38 @@
 package splitwise.service;
 
+import splitwise.event.BalanceEventRingBuffer;
+import splitwise.fx.FxRateTable;
 import splitwise.model.Expense;
+import splitwise.model.Settlement;
 import splitwise.model.Split;
 import splitwise.model.User;
 
 import java.math.BigDecimal;
 import java.util.*;
 
+/**
+ * Keeps one ledger per currency; amounts in different currencies are never added together.
+ * Methods that do not take a currency work on {@link Expense#DEFAULT_CURRENCY}. Conversion only
+ * happens in the read methods that take an {@link FxRateTable}.
+ */
 public class BalanceService {
-    // Map: User A -> (User B -> Amount) means A owes B that amount
-    private final Map<String, Map<String, BigDecimal>> balances = new HashMap<>();
+    // Currency -> (User A -> (User B -> Amount)) means A owes B that amount in that currency
+    private final Map<Currency, Map<String, Map<String, BigDecimal>>> ledgers = new LinkedHashMap<>();
+    private final AppendOnlyLog<Settlement> settlements = new AppendOnlyLog<>();
+    private final BalanceEventRingBuffer eventFeed;
+    private long settlementIdCounter = 1;
+
+    public BalanceService() {
+        this(null);
+    }
+
+    /**
+     * @param eventFeed ring buffer that receives one event per balance change, or {@code null}
+     *                  to disable publishing. This service becomes its single writer.
+     */
+    public BalanceService(BalanceEventRingBuffer eventFeed) {
+        this.eventFeed = eventFeed;
+    }
 
     public void updateBalances(Expense expense) {
         User paidBy = expense.getPaidBy();
@@ -25,43 +48,182 @@ public class BalanceService {
             }
 
             // Participant owes the paidBy user
-            addBalance(participant.getId(), paidBy.getId(), share);
+            addBalance(expense.getCurrency(), participant.getId(), paidBy.getId(), share);
+            if (eventFeed != null) {
+                eventFeed.publishExpenseShare(participant.getId(), paidBy.getId(), share,
+                        expense.getCurrency(), expense.getId(), expense.getGroup().getId());
+            }
+        }
+    }
+
+    /**
+     * Applies a batch of expenses, summing shares per debtor/creditor pair first so each ledger
+     * edge is touched once per batch rather than once per split.
+     */
+    public void updateBalances(Collection<Expense> batch) {
+        Map<Currency, Map<String, Map<String, BigDecimal>>> deltas = new HashMap<>();
+        for (Expense expense : batch) {
+            User paidBy = expense.getPaidBy();
+            Map<String, Map<String, BigDecimal>> currencyDeltas =
+                    deltas.computeIfAbsent(expense.getCurrency(), k -> new HashMap<>());
+            for (Split split : expense.getSplits()) {
+                User participant = split.getUser();
+                if (participant.equals(paidBy)) {
+                    continue;
+                }
+                currencyDeltas.computeIfAbsent(participant.getId(), k -> new HashMap<>())
+                        .merge(paidBy.getId(), split.getValue(), BigDecimal::add);
+            }
+        }
+
+        for (Map.Entry<Currency, Map<String, Map<String, BigDecimal>>> currencyDeltas : deltas.entrySet()) {
+            for (Map.Entry<String, Map<String, BigDecimal>> entry : currencyDeltas.getValue().entrySet()) {
+                for (Map.Entry<String, BigDecimal> delta : entry.getValue().entrySet()) {
+                    addBalance(currencyDeltas.getKey(), entry.getKey(), delta.getKey(), delta.getValue());
+                }
+            }
+        }
+
+        if (eventFeed != null) {
+            for (Expense expense : batch) {
+                User paidBy = expense.getPaidBy();
+                for (Split split : expense.getSplits()) {
+                    if (!split.getUser().equals(paidBy)) {
+                        eventFeed.publishExpenseShare(split.getUser().getId(), paidBy.getId(), split.getValue(),
+                                expense.getCurrency(), expense.getId(), expense.getGroup().getId());
+                    }
+                }
+            }
         }
     }
 
-    private void addBalance(String debtorId, String creditorId, BigDecimal amount) {
-        balances.computeIfAbsent(debtorId, k -> new HashMap<>())
+    private void addBalance(Currency currency, String debtorId, String creditorId, BigDecimal amount) {
+        ledger(currency).computeIfAbsent(debtorId, k -> new HashMap<>())
                 .merge(creditorId, amount, BigDecimal::add);
     }
 
+    private Map<String, Map<String, BigDecimal>> ledger(Currency currency) {
+        return ledgers.computeIfAbsent(currency, k -> new HashMap<>());
+    }
+
+    private Map<String, Map<String, BigDecimal>> existingLedger(Currency currency) {
+        return ledgers.getOrDefault(currency, Collections.emptyMap());
+    }
+
     public void settleBalance(String fromUserId, String toUserId, BigDecimal amount) {
-        BigDecimal currentBalance = getBalance(fromUserId, toUserId);
+        settleBalance(fromUserId, toUserId, amount, Expense.DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Settles part or all of what one user owes another in a single currency. Debts in other
+     * currencies are untouched.
+     */
+    public void settleBalance(String fromUserId, String toUserId, BigDecimal amount, Currency currency) {
+        Map<String, Map<String, BigDecimal>> balances = ledgers.get(currency);
+        if (balances == null) {
+            throw new IllegalArgumentException("No balances in " + currency.getCurrencyCode() + " to settle");
+        }
+        Map<String, BigDecimal> owes = balances.get(fromUserId);
+        boolean owing = owes != null && owes.containsKey(toUserId);
+        BigDecimal currentBalance = owing ? owes.get(toUserId) : BigDecimal.ZERO;
         
         if (amount.compareTo(currentBalance) > 0) {
             throw new IllegalArgumentException(
                     "Cannot settle more than owed. " + fromUserId + " owes " + toUserId + " only " + currentBalance);
         }
+        if (!owing) {
+            // Settling nothing on a debt that does not exist changes nothing, and is not recorded
+            return;
+        }
 
         BigDecimal remaining = currentBalance.subtract(amount);
         
         if (remaining.compareTo(BigDecimal.ZERO) > 0) {
             // Partial settlement
-            balances.get(fromUserId).put(toUserId, remaining);
+            owes.put(toUserId, remaining);
         } else {
             // Full settlement
-            balances.get(fromUserId).remove(toUserId);
-            if (balances.get(fromUserId).isEmpty()) {
+            owes.remove(toUserId);
+            if (owes.isEmpty()) {
                 balances.remove(fromUserId);
             }
         }
+
+        long settlementId = settlementIdCounter++;
+        settlements.append(new Settlement(settlementId, fromUserId, toUserId, amount, currency));
+        if (eventFeed != null) {
+            eventFeed.publishSettlement(fromUserId, toUserId, amount, currency, settlementId);
+        }
+    }
+
+    /**
+     * Corrects a single ledger edge by a signed delta, bypassing settlement bookkeeping.
+     * Used by reconciliation to repair drift.
+     */
+    void adjustBalance(String debtorId, String creditorId, BigDecimal delta, Currency currency) {
+        BigDecimal adjusted = getBalance(debtorId, creditorId, currency).add(delta);
+        Map<String, Map<String, BigDecimal>> balances = ledger(currency);
+        if (adjusted.signum() == 0) {
+            Map<String, BigDecimal> owes = balances.get(debtorId);
+            if (owes != null) {
+                owes.remove(creditorId);
+                if (owes.isEmpty()) {
+                    balances.remove(debtorId);
+                }
+            }
+        } else {
+            balances.computeIfAbsent(debtorId, k -> new HashMap<>()).put(creditorId, adjusted);
+        }
+
+        if (eventFeed != null) {
+            eventFeed.publishAdjustment(debtorId, creditorId, delta, currency);
+        }
+    }
+
+    /**
+     * Read-only view of every settlement recorded so far, in order. Elements below a size read
+     * earlier can be read without the write lock.
+     */
+    public List<Settlement> getSettlements() {
+        return Collections.unmodifiableList(settlements);
+    }
+
+    /**
+     * Currencies that have ever held a balance, in the order they first appeared.
+     */
+    public Set<Currency> getCurrencies() {
+        return Collections.unmodifiableSet(ledgers.keySet());
     }
 
     public BigDecimal getBalance(String fromUserId, String toUserId) {
-        return balances.getOrDefault(fromUserId, Collections.emptyMap())
+        return getBalance(fromUserId, toUserId, Expense.DEFAULT_CURRENCY);
+    }
+
+    public BigDecimal getBalance(String fromUserId, String toUserId, Currency currency) {
+        return existingLedger(currency).getOrDefault(fromUserId, Collections.emptyMap())
                 .getOrDefault(toUserId, BigDecimal.ZERO);
     }
 
+    /**
+     * What one user owes another across all currencies, converted to {@code displayCurrency}.
+     */
+    public BigDecimal getBalance(String fromUserId, String toUserId, Currency displayCurrency, FxRateTable rates) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Currency currency : ledgers.keySet()) {
+            BigDecimal amount = getBalance(fromUserId, toUserId, currency);
+            if (amount.signum() != 0) {
+                total = total.add(rates.convert(amount, currency, displayCurrency));
+            }
+        }
+        return total;
+    }
+
     public Map<String, BigDecimal> getBalancesForUser(String userId) {
+        return getBalancesForUser(userId, Expense.DEFAULT_CURRENCY);
+    }
+
+    public Map<String, BigDecimal> getBalancesForUser(String userId, Currency currency) {
+        Map<String, Map<String, BigDecimal>> balances = existingLedger(currency);
         Map<String, BigDecimal> userBalances = new HashMap<>();
         
         // What this user owes to others
@@ -83,16 +245,112 @@ public class BalanceService {
         return userBalances;
     }
 
+    /**
+     * Same keys as {@link #getBalancesForUser(String)}, with every currency converted to
+     * {@code displayCurrency} and summed per counterparty.
+     */
+    public Map<String, BigDecimal> getBalancesForUser(String userId, Currency displayCurrency, FxRateTable rates) {
+        Map<String, BigDecimal> userBalances = new HashMap<>();
+        for (Currency currency : ledgers.keySet()) {
+            for (Map.Entry<String, BigDecimal> entry : getBalancesForUser(userId, currency).entrySet()) {
+                userBalances.merge(entry.getKey(), rates.convert(entry.getValue(), currency, displayCurrency),
+                        BigDecimal::add);
+            }
+        }
+        return userBalances;
+    }
+
+    /**
+     * Visits every raw (unsimplified) edge in the ledger.
+     */
+    public void forEachBalance(BalanceVisitor visitor) {
+        forEachBalance(Expense.DEFAULT_CURRENCY, visitor);
+    }
+
+    public void forEachBalance(Currency currency, BalanceVisitor visitor) {
+        for (Map.Entry<String, Map<String, BigDecimal>> entry : existingLedger(currency).entrySet()) {
+            String debtorId = entry.getKey();
+            for (Map.Entry<String, BigDecimal> balanceEntry : entry.getValue().entrySet()) {
+                visitor.visit(debtorId, balanceEntry.getKey(), balanceEntry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Visits every edge the given user is part of, either as debtor or as creditor.
+     */
+    public void forEachBalanceForUser(String userId, BalanceVisitor visitor) {
+        forEachBalanceForUser(userId, Expense.DEFAULT_CURRENCY, visitor);
+    }
+
+    public void forEachBalanceForUser(String userId, Currency currency, BalanceVisitor visitor) {
+        Map<String, Map<String, BigDecimal>> balances = existingLedger(currency);
+        Map<String, BigDecimal> owes = balances.getOrDefault(userId, Collections.emptyMap());
+        for (Map.Entry<String, BigDecimal> entry : owes.entrySet()) {
+            visitor.visit(userId, entry.getKey(), entry.getValue());
+        }
+
+        for (Map.Entry<String, Map<String, BigDecimal>> entry : balances.entrySet()) {
+            if (!entry.getKey().equals(userId)) {
+                BigDecimal owed = entry.getValue().get(userId);
+                if (owed != null && owed.compareTo(BigDecimal.ZERO) > 0) {
+                    visitor.visit(entry.getKey(), userId, owed);
+                }
+            }
+        }
+    }
+
     public Map<String, Map<String, BigDecimal>> getAllBalances() {
+        return getAllBalances(Expense.DEFAULT_CURRENCY);
+    }
+
+    public Map<String, Map<String, BigDecimal>> getAllBalances(Currency currency) {
         // Return simplified balances
-        return simplifyBalances();
+        return simplifyBalances(existingLedger(currency));
+    }
+
+    /**
+     * Simplifies each currency's ledger on its own, so every resulting payment is made in the
+     * currency the debt was incurred in.
+     */
+    public Map<Currency, Map<String, Map<String, BigDecimal>>> getAllBalancesByCurrency() {
+        Map<Currency, Map<String, Map<String, BigDecimal>>> byCurrency = new LinkedHashMap<>();
+        for (Map.Entry<Currency, Map<String, Map<String, BigDecimal>>> entry : ledgers.entrySet()) {
+            Map<String, Map<String, BigDecimal>> simplified = simplifyBalances(entry.getValue());
+            if (!simplified.isEmpty()) {
+                byCurrency.put(entry.getKey(), simplified);
+            }
+        }
+        return byCurrency;
+    }
+
+    /**
+     * Converts every ledger to {@code normalizedCurrency} and simplifies them together, which can
+     * cancel debts across currencies at the given rates.
+     */
+    public Map<String, Map<String, BigDecimal>> getAllBalances(Currency normalizedCurrency, FxRateTable rates) {
+        Map<String, Map<String, BigDecimal>> normalized = new HashMap<>();
+        for (Map.Entry<Currency, Map<String, Map<String, BigDecimal>>> ledger : ledgers.entrySet()) {
+            for (Map.Entry<String, Map<String, BigDecimal>> entry : ledger.getValue().entrySet()) {
+                Map<String, BigDecimal> owes = normalized.computeIfAbsent(entry.getKey(), k -> new HashMap<>());
+                for (Map.Entry<String, BigDecimal> balanceEntry : entry.getValue().entrySet()) {
+                    owes.merge(balanceEntry.getKey(),
+                            rates.convert(balanceEntry.getValue(), ledger.getKey(), normalizedCurrency),
+                            BigDecimal::add);
+                }
+                // Amounts that round to nothing in the normalized currency are dropped
+                owes.values().removeIf(amount -> amount.signum() == 0);
+            }
+        }
+        normalized.values().removeIf(Map::isEmpty);
+        return simplifyBalances(normalized);
     }
 
     /**
      * Simplifies balances to minimize the number of transactions.
      * Uses a greedy approach to find cycles and reduce transactions.
      */
-    private Map<String, Map<String, BigDecimal>> simplifyBalances() {
+    private Map<String, Map<String, BigDecimal>> simplifyBalances(Map<String, Map<String, BigDecimal>> balances) {
         // Create a working copy
         Map<String, Map<String, BigDecimal>> simplified = new HashMap<>();
         for (Map.Entry<String, Map<String, BigDecimal>> entry : balances.entrySet()) {
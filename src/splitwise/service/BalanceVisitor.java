@@ -0,0 +1,11 @@
+package splitwise.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Callback for walking ledger edges without copying the balance map.
+ * An edge means {@code debtorId} owes {@code creditorId} the given amount.
+ */
+public interface BalanceVisitor {
+    void visit(String debtorId, String creditorId, BigDecimal amount);
+}
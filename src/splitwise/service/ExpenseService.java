@@ -1,35 +1,213 @@
 package splitwise.service;
 
+import splitwise.archive.ExpenseArchive;
 import splitwise.model.*;
+import splitwise.repository.IdempotencyKeyRepository;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class ExpenseService {
-    private final Map<String, Expense> expenses = new HashMap<>();
+    private final Map<String, Expense> expenses = new ConcurrentHashMap<>();
+    // Same expenses in commit order, so readers can snapshot them by length
+    private final AppendOnlyLog<Expense> committed = new AppendOnlyLog<>();
+    // Held shared by readers that must see every expense either here or in the archive
+    private final ReadWriteLock archiveLock = new ReentrantReadWriteLock();
     private final GroupService groupService;
     private final BalanceService balanceService;
-    private int expenseIdCounter = 1;
+    private final IdempotencyCache<Expense> idempotencyCache;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final AtomicInteger expenseIdCounter = new AtomicInteger(1);
 
     public ExpenseService(GroupService groupService, BalanceService balanceService) {
+        this(groupService, balanceService, new IdempotencyCache<>(), null);
+    }
+
+    /**
+     * @param idempotencyKeyRepository durable store of keys and the expenses they committed, consulted
+     *                                 on cache misses, or {@code null} to keep keys in memory only
+     */
+    public ExpenseService(GroupService groupService,
+                          BalanceService balanceService,
+                          IdempotencyCache<Expense> idempotencyCache,
+                          IdempotencyKeyRepository idempotencyKeyRepository) {
         this.groupService = groupService;
         this.balanceService = balanceService;
+        this.idempotencyCache = Objects.requireNonNull(idempotencyCache, "idempotencyCache must not be null");
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
     }
 
+    /**
+     * Adds an expense at most once per idempotency key. A retry with a key that has already
+     * been committed returns the original expense without validating or touching balances again.
+     * The key is reserved before the expense is validated, so a retry that arrives while the
+     * first attempt is still running waits for it and gets the same expense or the same error.
+     * With a durable store, the key and the whole expense are recorded together before the expense
+     * is committed here, and the key is forgotten again if that commit fails.
+     */
+    public Expense addExpense(String idempotencyKey,
+                               String description,
+                               BigDecimal amount,
+                               String paidByUserId,
+                               List<Split> splits,
+                               SplitType splitType,
+                               String groupId) {
+        Objects.requireNonNull(idempotencyKey, "idempotencyKey must not be null");
+        CompletableFuture<Expense> pending = new CompletableFuture<>();
+        CompletableFuture<Expense> existing = idempotencyCache.reserve(idempotencyKey, pending);
+        if (existing != null) {
+            return awaitCommitted(existing);
+        }
+
+        try {
+            Expense expense = findCommittedExpense(idempotencyKey);
+            if (expense == null) {
+                expense = prepareExpense(description, amount, paidByUserId, splits, splitType, groupId);
+                if (idempotencyKeyRepository == null) {
+                    commitExpenses(Collections.singletonList(expense));
+                } else if (idempotencyKeyRepository.saveIfAbsent(idempotencyKey, expense)) {
+                    // The unique insert is what stops another process from posting the same key
+                    try {
+                        commitExpenses(Collections.singletonList(expense));
+                    } catch (RuntimeException e) {
+                        idempotencyKeyRepository.delete(idempotencyKey);
+                        throw e;
+                    }
+                } else {
+                    expense = findCommittedExpense(idempotencyKey);
+                    if (expense == null) {
+                        throw new IllegalStateException("Idempotency key " + idempotencyKey + " was removed concurrently");
+                    }
+                }
+            }
+            pending.complete(expense);
+            return expense;
+        } catch (RuntimeException e) {
+            idempotencyCache.release(idempotencyKey, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Looks the key up in the durable store. The expense comes from the store, so it is found
+     * even if it was archived or committed before a restart.
+     *
+     * @return the committed expense, or {@code null} if the key has not been used
+     */
+    private Expense findCommittedExpense(String idempotencyKey) {
+        if (idempotencyKeyRepository == null) {
+            return null;
+        }
+        return idempotencyKeyRepository.findExpense(idempotencyKey).orElse(null);
+    }
+
+    private static Expense awaitCommitted(CompletableFuture<Expense> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes durable idempotency keys older than {@code retentionMillis} every {@code period}.
+     * The retention should cover the longest window in which clients may still retry.
+     */
+    public ScheduledFuture<?> scheduleIdempotencyKeySweep(ScheduledExecutorService executor,
+                                                          long retentionMillis,
+                                                          long period,
+                                                          TimeUnit unit) {
+        if (idempotencyKeyRepository == null) {
+            throw new IllegalStateException("No idempotency key repository configured");
+        }
+        return executor.scheduleAtFixedRate(
+                () -> idempotencyKeyRepository.deleteOlderThan(System.currentTimeMillis() - retentionMillis),
+                period, period, unit);
+    }
+
+    /**
+     * Adds an expense in {@link Expense#DEFAULT_CURRENCY}, like the other methods that do not
+     * take a currency. The group's display currency only affects how balances are shown.
+     */
     public Expense addExpense(String description,
                                BigDecimal amount,
                                String paidByUserId,
                                List<Split> splits,
                                SplitType splitType,
                                String groupId) {
+        return addExpense(description, amount, Expense.DEFAULT_CURRENCY, paidByUserId, splits, splitType, groupId);
+    }
+
+    /**
+     * Adds an expense in an explicit currency. EXACT split values are in that currency, and
+     * computed shares are rounded to its usual number of decimal places.
+     */
+    public Expense addExpense(String description,
+                               BigDecimal amount,
+                               Currency currency,
+                               String paidByUserId,
+                               List<Split> splits,
+                               SplitType splitType,
+                               String groupId) {
+        Expense expense = prepareExpense(description, amount, currency, paidByUserId, splits, splitType, groupId);
+        store(expense);
+
+        // Update balances
+        balanceService.updateBalances(expense);
+
+        return expense;
+    }
+
+    /**
+     * Validates and processes an expense and assigns its id, without storing it or touching balances.
+     * Safe to call from several threads as long as users and groups are not modified concurrently.
+     */
+    Expense prepareExpense(String description,
+                           BigDecimal amount,
+                           String paidByUserId,
+                           List<Split> splits,
+                           SplitType splitType,
+                           String groupId) {
+        return prepareExpense(description, amount, Expense.DEFAULT_CURRENCY, paidByUserId, splits, splitType, groupId);
+    }
+
+    Expense prepareExpense(String description,
+                           BigDecimal amount,
+                           Currency currency,
+                           String paidByUserId,
+                           List<Split> splits,
+                           SplitType splitType,
+                           String groupId) {
+        Objects.requireNonNull(currency, "currency must not be null");
         // Validate group exists
         Group group = groupService.getGroupByIdOrThrow(groupId);
-        User paidBy = groupService.getUserService().getUserByIdOrThrow(paidByUserId);
+        Map<String, User> users = loadUsers(paidByUserId, splits);
+        User paidBy = users.get(paidByUserId);
 
         // Validate paidBy is in group
         if (!group.hasMember(paidBy)) {
@@ -40,27 +218,119 @@ public class ExpenseService {
         validateSplitsBeforeProcessing(splits, splitType, amount, group);
 
         // Process splits based on type
-        List<Split> processedSplits = processSplits(splits, splitType, amount, group);
+        List<Split> processedSplits = processSplits(splits, splitType, amount, currency, users);
 
         // Validate splits after processing (for EXACT, validate amounts)
         validateSplitsAfterProcessing(processedSplits, splitType, amount);
 
         // Create expense
-        String expenseId = "EXP" + expenseIdCounter++;
-        Expense expense = new Expense(expenseId, description, amount, paidBy, processedSplits, splitType, group);
-        expenses.put(expenseId, expense);
+        String expenseId = "EXP" + expenseIdCounter.getAndIncrement();
+        return new Expense(expenseId, description, amount, currency, paidBy, processedSplits, splitType, group);
+    }
 
-        // Update balances
-        balanceService.updateBalances(expense);
+    /**
+     * Validates the participants once and returns a template that can be reused for any number
+     * of expenses in the group. EXACT templates only accept amounts equal to their split total.
+     * Expenses from the template are booked in {@link Expense#DEFAULT_CURRENCY}.
+     */
+    public SplitTemplate createSplitTemplate(String groupId, List<Split> splits, SplitType splitType) {
+        return createSplitTemplate(groupId, splits, splitType, Expense.DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Same as {@link #createSplitTemplate(String, List, SplitType)}, booking its expenses in
+     * {@code currency}. EXACT values are in that currency.
+     */
+    public SplitTemplate createSplitTemplate(String groupId, List<Split> splits, SplitType splitType, Currency currency) {
+        Objects.requireNonNull(currency, "currency must not be null");
+        Group group = groupService.getGroupByIdOrThrow(groupId);
+        validateSplitsBeforeProcessing(splits, splitType, null, group);
+        for (Split split : splits) {
+            if (!group.hasMember(split.getUser())) {
+                throw new IllegalArgumentException("User " + split.getUser().getId() + " is not a member of the group");
+            }
+        }
+        return new SplitTemplate(group, splitType, currency, splits);
+    }
 
+    public Expense addExpense(SplitTemplate template, String description, BigDecimal amount, String paidByUserId) {
+        Expense expense = prepareExpense(template, description, amount, paidByUserId);
+        commitExpenses(Collections.singletonList(expense));
         return expense;
     }
 
-    private List<Split> processSplits(List<Split> splits, SplitType splitType, BigDecimal amount, Group group) {
+    /**
+     * Builds a validated expense with its id assigned, without storing it or touching balances.
+     */
+    Expense prepareExpense(SplitTemplate template, String description, BigDecimal amount, String paidByUserId) {
+        User paidBy = validatePayer(template.getGroup(), paidByUserId);
+        List<Split> splits = template.apply(amount);
+        String expenseId = "EXP" + expenseIdCounter.getAndIncrement();
+        return new Expense(expenseId, description, amount, template.getCurrency(), paidBy, splits,
+                template.getSplitType(), template.getGroup());
+    }
+
+    /**
+     * Runs the same checks as {@link #prepareExpense} without assigning an id.
+     */
+    void validateTemplatedExpense(SplitTemplate template, BigDecimal amount, String paidByUserId) {
+        validatePayer(template.getGroup(), paidByUserId);
+        template.apply(amount);
+    }
+
+    private User validatePayer(Group group, String paidByUserId) {
+        User paidBy = groupService.getUserService().getUserByIdOrThrow(paidByUserId);
+        if (!group.hasMember(paidBy)) {
+            throw new IllegalArgumentException("User " + paidByUserId + " is not a member of group " + group.getId());
+        }
+        return paidBy;
+    }
+
+    /**
+     * Applies prepared expenses to the ledger in one batch update, then stores them. The batch
+     * update sums every share before touching the ledger, so if it throws nothing is stored.
+     */
+    void commitExpenses(List<Expense> batch) {
+        balanceService.updateBalances(batch);
+        for (Expense expense : batch) {
+            store(expense);
+        }
+    }
+
+    private void store(Expense expense) {
+        expenses.put(expense.getId(), expense);
+        committed.append(expense);
+    }
+
+    /**
+     * Resolves the payer and every split user with one bulk lookup, so a repository-backed user
+     * service loads all of its cache misses in a single query.
+     */
+    private Map<String, User> loadUsers(String paidByUserId, List<Split> splits) {
+        List<String> userIds = new ArrayList<>(splits.size() + 1);
+        userIds.add(paidByUserId);
+        for (Split split : splits) {
+            userIds.add(split.getUser().getId());
+        }
+        Map<String, User> users = groupService.getUserService().getUsersByIds(userIds);
+        for (String userId : userIds) {
+            if (!users.containsKey(userId)) {
+                throw new IllegalArgumentException("User with ID " + userId + " not found");
+            }
+        }
+        return users;
+    }
+
+    private List<Split> processSplits(List<Split> splits,
+                                      SplitType splitType,
+                                      BigDecimal amount,
+                                      Currency currency,
+                                      Map<String, User> users) {
+        int scale = Math.max(0, currency.getDefaultFractionDigits());
         List<Split> processedSplits = new ArrayList<>();
 
         for (Split split : splits) {
-            User user = split.getUser();
+            User user = users.get(split.getUser().getId());
             // Group membership validation is done in validateSplitsBeforeProcessing
 
             Split processedSplit;
@@ -84,7 +354,7 @@ public class ExpenseService {
         if (splitType == SplitType.EQUAL) {
             BigDecimal perPersonAmount = amount.divide(
                     BigDecimal.valueOf(processedSplits.size()),
-                    2,
+                    scale,
                     RoundingMode.HALF_UP
             );
             for (Split split : processedSplits) {
@@ -95,7 +365,7 @@ public class ExpenseService {
                 BigDecimal percent = split.getValue();
                 BigDecimal share = amount.multiply(percent).divide(
                         BigDecimal.valueOf(100),
-                        2,
+                        scale,
                         RoundingMode.HALF_UP
                 );
                 split.setValue(share);
@@ -143,6 +413,81 @@ public class ExpenseService {
         return new HashMap<>(expenses);
     }
 
+    /**
+     * Read-only view over the stored expenses, for callers that only need to iterate.
+     */
+    public Collection<Expense> getExpenses() {
+        return Collections.unmodifiableCollection(expenses.values());
+    }
+
+    /**
+     * Visits every stored expense in the order it was committed, up to the last commit before
+     * this call. Archiving waits until the visit is over.
+     */
+    public void forEachCommittedExpense(Consumer<Expense> action) {
+        Lock lock = archiveLock.readLock();
+        lock.lock();
+        try {
+            int count = committed.size();
+            for (int i = 0; i < count; i++) {
+                action.accept(committed.get(i));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves matching expenses into the off-heap archive and drops them from this service.
+     * Balances are not touched; archived expenses are read through the archive from then on.
+     * Expenses outside {@link Expense#DEFAULT_CURRENCY} are never archived. Waits for running
+     * reconciliations to finish, so do not call it while holding their write lock.
+     *
+     * @return number of expenses archived
+     */
+    public int archiveExpenses(ExpenseArchive archive, Predicate<Expense> filter) {
+        int[] archived = new int[1];
+        Lock lock = archiveLock.writeLock();
+        lock.lock();
+        try {
+            committed.removeIf(expense -> {
+                if (!expense.getCurrency().equals(Expense.DEFAULT_CURRENCY) || !filter.test(expense)) {
+                    return false;
+                }
+                archive.append(expense);
+                expenses.remove(expense.getId());
+                archived[0]++;
+                return true;
+            });
+        } finally {
+            lock.unlock();
+        }
+        return archived[0];
+    }
+
+    /**
+     * Stored expenses in commit order. Its length only shrinks while the archive lock is held
+     * exclusively.
+     */
+    AppendOnlyLog<Expense> getCommittedExpenses() {
+        return committed;
+    }
+
+    /**
+     * Held exclusively while expenses move into an archive.
+     */
+    ReadWriteLock getArchiveLock() {
+        return archiveLock;
+    }
+
+    GroupService getGroupService() {
+        return groupService;
+    }
+
+    public IdempotencyCache<Expense> getIdempotencyCache() {
+        return idempotencyCache;
+    }
+
     public Optional<Expense> getExpenseById(String id) {
         return Optional.ofNullable(expenses.get(id));
     }
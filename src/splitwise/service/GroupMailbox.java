@@ -0,0 +1,211 @@
+package splitwise.service;
+
+import splitwise.model.Expense;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Mailbox for one group, or for all settlements. At most one drain runs at a time, so its
+ * operations are applied in submission order. Each drain prepares up to {@code maxBatchSize}
+ * expenses outside the ledger lock, then takes the lock once and, in order, commits every run
+ * of consecutive expenses through {@link ExpenseService#commitExpenses} and applies each ledger
+ * action on its own.
+ */
+final class GroupMailbox implements Runnable {
+    private final ExpenseService expenseService;
+    private final Executor executor;
+    private final Lock ledgerLock;
+    private final int maxBatchSize;
+    private final int capacity;
+    private final Queue<Operation> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    GroupMailbox(ExpenseService expenseService, Executor executor, Lock ledgerLock, int maxBatchSize, int capacity) {
+        this.expenseService = expenseService;
+        this.executor = executor;
+        this.ledgerLock = ledgerLock;
+        this.maxBatchSize = maxBatchSize;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return false if the mailbox is full and the operation was not queued
+     */
+    boolean offer(Operation operation) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return false;
+        }
+        queue.add(operation);
+        scheduleIfNeeded();
+        return true;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    @Override
+    public void run() {
+        try {
+            drain();
+        } finally {
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                scheduleIfNeeded();
+            }
+        }
+    }
+
+    private void drain() {
+        List<Operation> batch = new ArrayList<>(maxBatchSize);
+        Operation operation;
+        while (batch.size() < maxBatchSize && (operation = queue.poll()) != null) {
+            batch.add(operation);
+        }
+        size.addAndGet(-batch.size());
+
+        try {
+            for (Operation op : batch) {
+                op.prepare();
+            }
+            List<Operation> expenses = new ArrayList<>(batch.size());
+            ledgerLock.lock();
+            try {
+                for (Operation op : batch) {
+                    if (op.expense != null) {
+                        expenses.add(op);
+                    } else if (op.ledgerAction != null) {
+                        // Expenses queued before a ledger action must be on the ledger when it runs
+                        commit(expenses);
+                        expenses.clear();
+                        op.apply();
+                    }
+                }
+                commit(expenses);
+            } finally {
+                ledgerLock.unlock();
+            }
+        } catch (RuntimeException e) {
+            for (Operation op : batch) {
+                op.fail(e);
+            }
+        } finally {
+            for (Operation op : batch) {
+                op.complete();
+            }
+        }
+    }
+
+    /**
+     * Commits the expenses with one batch update; either all of them are committed or none are.
+     */
+    private void commit(List<Operation> operations) {
+        if (operations.isEmpty()) {
+            return;
+        }
+        List<Expense> expenses = new ArrayList<>(operations.size());
+        for (Operation op : operations) {
+            expenses.add(op.expense);
+        }
+        try {
+            expenseService.commitExpenses(expenses);
+        } catch (RuntimeException e) {
+            for (Operation op : operations) {
+                op.fail(e);
+            }
+            return;
+        }
+        for (Operation op : operations) {
+            op.applied = true;
+        }
+    }
+
+    private void scheduleIfNeeded() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+    }
+
+    /**
+     * One queued request. Expense operations are prepared before the ledger lock is taken;
+     * ledger actions such as settlements run under it in submission order.
+     */
+    static final class Operation {
+        private final Supplier<Expense> preparer;
+        private final Supplier<?> ledgerAction;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private Expense expense;
+        private Object result;
+        private Throwable failure;
+        private boolean applied;
+
+        private Operation(Supplier<Expense> preparer, Supplier<?> ledgerAction) {
+            this.preparer = preparer;
+            this.ledgerAction = ledgerAction;
+        }
+
+        static Operation expense(Supplier<Expense> preparer) {
+            return new Operation(preparer, null);
+        }
+
+        static Operation ledger(Supplier<?> action) {
+            return new Operation(null, action);
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> CompletableFuture<T> future() {
+            return (CompletableFuture<T>) future;
+        }
+
+        void prepare() {
+            if (preparer == null) {
+                return;
+            }
+            try {
+                expense = preparer.get();
+                result = expense;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        void apply() {
+            try {
+                result = ledgerAction.get();
+                applied = true;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Records {@code cause} unless the operation already failed or was applied.
+         */
+        void fail(Throwable cause) {
+            if (failure == null && !applied) {
+                failure = cause;
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else if (applied) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(new IllegalStateException("Mailbox drain stopped before this operation"));
+            }
+        }
+    }
+}
@@ -1,36 +1,80 @@
 package splitwise.service;
 
+import splitwise.cache.LoadingCache;
 import splitwise.model.Group;
 import splitwise.model.User;
+import splitwise.repository.GroupRepository;
 
+import java.util.Currency;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 public class GroupService {
     private final Map<String, Group> groups = new HashMap<>();
     private final UserService userService;
+    private final GroupRepository repository;
+    private final LoadingCache<String, Group> cache;
 
     public GroupService(UserService userService) {
         this.userService = userService;
+        this.repository = null;
+        this.cache = null;
+    }
+
+    /**
+     * Repository-backed mode: groups (with their members) are loaded on first access and kept in
+     * an LRU cache of at most {@code cacheSize} entries.
+     */
+    public GroupService(UserService userService, GroupRepository repository, int cacheSize) {
+        this.userService = userService;
+        this.repository = repository;
+        this.cache = new LoadingCache<>(cacheSize,
+                id -> repository.findById(id).orElse(null),
+                repository::findAllByIds);
     }
 
     public Group createGroup(String id, String name) {
-        if (groups.containsKey(id)) {
+        if (getGroupById(id).isPresent()) {
             throw new IllegalArgumentException("Group with ID " + id + " already exists");
         }
         Group group = new Group(id, name);
-        groups.put(id, group);
+        if (repository != null) {
+            repository.save(group);
+            cache.put(id, group);
+        } else {
+            groups.put(id, group);
+        }
         return group;
     }
 
     public void addUserToGroup(String groupId, String userId) {
         Group group = getGroupByIdOrThrow(groupId);
         User user = userService.getUserByIdOrThrow(userId);
+        if (repository != null) {
+            repository.addMember(groupId, userId);
+        }
         group.addMember(user);
     }
 
+    /**
+     * Changes the currency the group's balances are shown in and its new expenses default to.
+     * Expenses already recorded keep their own currency.
+     */
+    public void setDisplayCurrency(String groupId, Currency displayCurrency) {
+        Objects.requireNonNull(displayCurrency, "displayCurrency must not be null");
+        Group group = getGroupByIdOrThrow(groupId);
+        if (repository != null) {
+            repository.updateDisplayCurrency(groupId, displayCurrency);
+        }
+        group.setDisplayCurrency(displayCurrency);
+    }
+
     public Optional<Group> getGroupById(String id) {
+        if (cache != null) {
+            return Optional.ofNullable(cache.get(id));
+        }
         return Optional.ofNullable(groups.get(id));
     }
 
@@ -39,12 +83,24 @@ public class GroupService {
                 .orElseThrow(() -> new IllegalArgumentException("Group with ID " + id + " not found"));
     }
 
+    /**
+     * In repository-backed mode this reads every group from the database.
+     */
     public Map<String, Group> getAllGroups() {
+        if (repository != null) {
+            return repository.findAll();
+        }
         return new HashMap<>(groups);
     }
 
     public UserService getUserService() {
         return userService;
     }
-}
 
+    /**
+     * The group cache, for hit-rate and eviction statistics; empty in in-memory mode.
+     */
+    public Optional<LoadingCache<String, Group>> getCache() {
+        return Optional.ofNullable(cache);
+    }
+}
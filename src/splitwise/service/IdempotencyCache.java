@@ -0,0 +1,150 @@
+package splitwise.service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, thread-safe map from idempotency key to the result of the call that reserved it.
+ * Entries expire after a fixed time-to-live and, when the cache is full, the oldest entries are
+ * evicted first.
+ *
+ * <p>Keys are reserved before their result exists, see {@link #reserve}. Reserved keys are
+ * never evicted or expired until their result is known, so concurrent retries always find the
+ * reservation and wait on it.
+ */
+public class IdempotencyCache<V> {
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<V>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public IdempotencyCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+    }
+
+    public IdempotencyCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+    }
+
+    /**
+     * Atomically claims the key for a caller that is about to compute its result.
+     *
+     * @param pending future the caller completes with the result, or completes exceptionally
+     *                after calling {@link #release} if it gives up
+     * @return {@code null} if the key is now reserved by the caller, otherwise the existing
+     *         result or reservation to wait on
+     */
+    public CompletableFuture<V> reserve(String key, CompletableFuture<V> pending) {
+        Entry<V> entry = new Entry<>(key, pending, clock.getAsLong());
+        while (true) {
+            Entry<V> existing = liveEntry(key);
+            if (existing != null) {
+                hits.increment();
+                return existing.result;
+            }
+            if (entries.putIfAbsent(key, entry) == null) {
+                misses.increment();
+                insertionOrder.add(entry);
+                evict();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Drops a reservation whose result could not be produced, so a later retry can try again.
+     */
+    public void release(String key, CompletableFuture<V> pending) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.result == pending) {
+            entries.remove(key, entry);
+            insertionOrder.remove(entry);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private Entry<V> liveEntry(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && isExpired(entry, clock.getAsLong())) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    private void evict() {
+        long now = clock.getAsLong();
+        Entry<V> oldest;
+        while ((oldest = insertionOrder.peek()) != null
+                && (entries.size() > maxEntries || isExpired(oldest, now))) {
+            if (!oldest.result.isDone()) {
+                // Never drop a reservation; the cache may briefly exceed maxEntries instead
+                break;
+            }
+            if (insertionOrder.remove(oldest) && entries.remove(oldest.key, oldest)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return entry.result.isDone() && now - entry.createdAtMillis >= ttlMillis;
+    }
+
+    private static final class Entry<V> {
+        private final String key;
+        private final CompletableFuture<V> result;
+        private final long createdAtMillis;
+
+        Entry(String key, CompletableFuture<V> result, long createdAtMillis) {
+            this.key = key;
+            this.result = result;
+            this.createdAtMillis = createdAtMillis;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package splitwise.service;
+
+import splitwise.archive.ExpenseArchive;
+import splitwise.model.Expense;
+import splitwise.model.Settlement;
+import splitwise.model.Split;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * Recomputes every ledger edge from the expense and settlement history and compares the result
+ * with {@link BalanceService}'s incrementally maintained balances.
+ *
+ * <p>Writers are only held off while the ledger is copied and the lengths of the append-only
+ * expense and settlement histories are read; the history below those lengths is copied after the
+ * lock is released. The recomputation itself runs on a fork-join pool over partitions of that
+ * snapshot, with partial sums merged pairwise. Repairs apply the snapshot difference as a delta,
+ * so writes made after the snapshot are preserved. Archiving waits for a running reconciliation,
+ * so every expense in the snapshot is counted exactly once, either live or archived.
+ *
+ * <p>Each currency's ledger is reconciled separately; archived expenses count towards
+ * {@link Expense#DEFAULT_CURRENCY}, the only currency the archive accepts.
+ */
+public class LedgerReconciler {
+    private static final int EXPENSES_PER_TASK = 8_192;
+    private static final int SETTLEMENTS_PER_TASK = 32_768;
+
+    private final ExpenseService expenseService;
+    private final BalanceService balanceService;
+    private final ExpenseArchive archive;
+    private final Lock writeLock;
+    private final ForkJoinPool pool;
+
+    public LedgerReconciler(ExpenseService expenseService, BalanceService balanceService) {
+        this(expenseService, balanceService, null, null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param archive   archived expenses that also contributed to the ledger, or {@code null}
+     * @param writeLock lock the application holds around ledger writes, or {@code null} if the
+     *                  caller guarantees no concurrent writes
+     */
+    public LedgerReconciler(ExpenseService expenseService,
+                            BalanceService balanceService,
+                            ExpenseArchive archive,
+                            Lock writeLock,
+                            ForkJoinPool pool) {
+        this.expenseService = expenseService;
+        this.balanceService = balanceService;
+        this.archive = archive;
+        this.writeLock = writeLock;
+        this.pool = pool;
+    }
+
+    public ReconciliationReport reconcile(boolean repair) {
+        long start = System.nanoTime();
+
+        Lock archiveLock = expenseService.getArchiveLock().readLock();
+        archiveLock.lock();
+        try {
+            return reconcile(repair, start);
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    private ReconciliationReport reconcile(boolean repair, long start) {
+        AppendOnlyLog<Expense> committed = expenseService.getCommittedExpenses();
+        List<Settlement> settlementHistory = balanceService.getSettlements();
+        int expenseCount;
+        int settlementCount;
+        Map<Currency, Map<String, Map<String, BigDecimal>>> ledgers = new HashMap<>();
+        lock();
+        try {
+            expenseCount = committed.size();
+            settlementCount = settlementHistory.size();
+            for (Currency currency : balanceService.getCurrencies()) {
+                Map<String, Map<String, BigDecimal>> ledger = new HashMap<>();
+                balanceService.forEachBalance(currency, (debtorId, creditorId, amount) ->
+                        ledger.computeIfAbsent(debtorId, k -> new HashMap<>()).put(creditorId, amount));
+                ledgers.put(currency, ledger);
+            }
+        } finally {
+            unlock();
+        }
+
+        Expense[] expenses = committed.copyPrefix(expenseCount, new Expense[expenseCount]);
+        Settlement[] settlements = new Settlement[settlementCount];
+        for (int i = 0; i < settlementCount; i++) {
+            settlements[i] = settlementHistory.get(i);
+        }
+
+        List<RecursiveTask<EdgeSums>> tasks = new ArrayList<>();
+        tasks.add(new ExpenseTask(expenses, 0, expenses.length));
+        tasks.add(new SettlementTask(settlements, 0, settlements.length));
+        if (archive != null) {
+            for (int segment = 0; segment < archive.getSegmentCount(); segment++) {
+                tasks.add(new ArchiveSegmentTask(archive, segment));
+            }
+        }
+        EdgeSums expected = pool.invoke(new MergeTask(tasks, 0, tasks.size()));
+
+        List<BalanceDrift> drifts = new ArrayList<>();
+        int edgesCompared = 0;
+        for (Map.Entry<Currency, Map<String, Map<String, EdgeSum>>> currencyEdges : expected.edges.entrySet()) {
+            Currency currency = currencyEdges.getKey();
+            edgesCompared += diff(currency, currencyEdges.getValue(),
+                    ledgers.getOrDefault(currency, Collections.<String, Map<String, BigDecimal>>emptyMap()), drifts);
+        }
+        for (Map.Entry<Currency, Map<String, Map<String, BigDecimal>>> ledger : ledgers.entrySet()) {
+            if (!expected.edges.containsKey(ledger.getKey())) {
+                edgesCompared += diff(ledger.getKey(), Collections.<String, Map<String, EdgeSum>>emptyMap(),
+                        ledger.getValue(), drifts);
+            }
+        }
+
+        if (repair && !drifts.isEmpty()) {
+            lock();
+            try {
+                for (BalanceDrift drift : drifts) {
+                    balanceService.adjustBalance(drift.getDebtorId(), drift.getCreditorId(), drift.getDifference(),
+                            drift.getCurrency());
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        return new ReconciliationReport(drifts, expenses.length, archive == null ? 0 : archive.size(),
+                settlements.length, edgesCompared, repair && !drifts.isEmpty(), System.nanoTime() - start);
+    }
+
+    /**
+     * Runs {@link #reconcile(boolean)} at a fixed rate, for example hourly, handing each report
+     * to the listener.
+     */
+    public ScheduledFuture<?> schedule(ScheduledExecutorService executor,
+                                       long period,
+                                       TimeUnit unit,
+                                       boolean repair,
+                                       Consumer<ReconciliationReport> listener) {
+        return executor.scheduleAtFixedRate(() -> listener.accept(reconcile(repair)), period, period, unit);
+    }
+
+    private static int diff(Currency currency,
+                            Map<String, Map<String, EdgeSum>> expected,
+                            Map<String, Map<String, BigDecimal>> ledger,
+                            List<BalanceDrift> drifts) {
+        int compared = 0;
+        for (Map.Entry<String, Map<String, EdgeSum>> debtor : expected.entrySet()) {
+            Map<String, BigDecimal> actualOwes = ledger.getOrDefault(debtor.getKey(), Collections.<String, BigDecimal>emptyMap());
+            for (Map.Entry<String, EdgeSum> creditor : debtor.getValue().entrySet()) {
+                compared++;
+                BigDecimal expectedAmount = creditor.getValue().total();
+                BigDecimal actualAmount = actualOwes.getOrDefault(creditor.getKey(), BigDecimal.ZERO);
+                if (expectedAmount.compareTo(actualAmount) != 0) {
+                    drifts.add(new BalanceDrift(debtor.getKey(), creditor.getKey(), currency, expectedAmount, actualAmount));
+                }
+            }
+        }
+
+        // Edges present in the ledger that history does not explain at all
+        for (Map.Entry<String, Map<String, BigDecimal>> debtor : ledger.entrySet()) {
+            Map<String, EdgeSum> expectedOwes = expected.get(debtor.getKey());
+            for (Map.Entry<String, BigDecimal> creditor : debtor.getValue().entrySet()) {
+                if (expectedOwes == null || !expectedOwes.containsKey(creditor.getKey())) {
+                    compared++;
+                    if (creditor.getValue().signum() != 0) {
+                        drifts.add(new BalanceDrift(debtor.getKey(), creditor.getKey(), currency,
+                                BigDecimal.ZERO.setScale(2), creditor.getValue()));
+                    }
+                }
+            }
+        }
+        return compared;
+    }
+
+    private void lock() {
+        if (writeLock != null) {
+            writeLock.lock();
+        }
+    }
+
+    private void unlock() {
+        if (writeLock != null) {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Running total for one edge: exact minor units on the fast path, with a BigDecimal overflow
+     * for values that are not whole cents.
+     */
+    private static final class EdgeSum {
+        private long minor;
+        private BigDecimal exact;
+
+        void add(BigDecimal value, boolean negate) {
+            if (value.scale() <= 2 && value.precision() - value.scale() <= 16) {
+                long cents = value.setScale(2).unscaledValue().longValue();
+                minor += negate ? -cents : cents;
+            } else {
+                BigDecimal signed = negate ? value.negate() : value;
+                exact = exact == null ? signed : exact.add(signed);
+            }
+        }
+
+        void merge(EdgeSum other) {
+            minor += other.minor;
+            if (other.exact != null) {
+                exact = exact == null ? other.exact : exact.add(other.exact);
+            }
+        }
+
+        BigDecimal total() {
+            BigDecimal total = BigDecimal.valueOf(minor, 2);
+            return exact == null ? total : total.add(exact);
+        }
+    }
+
+    private static final class EdgeSums {
+        private final Map<Currency, Map<String, Map<String, EdgeSum>>> edges = new HashMap<>();
+
+        EdgeSum edge(Currency currency, String debtorId, String creditorId) {
+            return edges.computeIfAbsent(currency, k -> new HashMap<>())
+                    .computeIfAbsent(debtorId, k -> new HashMap<>())
+                    .computeIfAbsent(creditorId, k -> new EdgeSum());
+        }
+
+        int size() {
+            int size = 0;
+            for (Map<String, Map<String, EdgeSum>> currencyEdges : edges.values()) {
+                for (Map<String, EdgeSum> owes : currencyEdges.values()) {
+                    size += owes.size();
+                }
+            }
+            return size;
+        }
+
+        EdgeSums mergeWith(EdgeSums other) {
+            EdgeSums larger = size() >= other.size() ? this : other;
+            EdgeSums smaller = larger == this ? other : this;
+            for (Map.Entry<Currency, Map<String, Map<String, EdgeSum>>> currencyEdges : smaller.edges.entrySet()) {
+                for (Map.Entry<String, Map<String, EdgeSum>> debtor : currencyEdges.getValue().entrySet()) {
+                    for (Map.Entry<String, EdgeSum> creditor : debtor.getValue().entrySet()) {
+                        larger.edge(currencyEdges.getKey(), debtor.getKey(), creditor.getKey())
+                                .merge(creditor.getValue());
+                    }
+                }
+            }
+            return larger;
+        }
+    }
+
+    private static final class ExpenseTask extends RecursiveTask<EdgeSums> {
+        private static final long serialVersionUID = 1L;
+
+        private final Expense[] expenses;
+        private final int from;
+        private final int to;
+
+        ExpenseTask(Expense[] expenses, int from, int to) {
+            this.expenses = expenses;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected EdgeSums compute() {
+            if (to - from > EXPENSES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                ExpenseTask left = new ExpenseTask(expenses, from, middle);
+                left.fork();
+                EdgeSums right = new ExpenseTask(expenses, middle, to).compute();
+                return left.join().mergeWith(right);
+            }
+            EdgeSums sums = new EdgeSums();
+            for (int i = from; i < to; i++) {
+                Expense expense = expenses[i];
+                String creditorId = expense.getPaidBy().getId();
+                for (Split split : expense.getSplits()) {
+                    String debtorId = split.getUser().getId();
+                    if (!debtorId.equals(creditorId)) {
+                        sums.edge(expense.getCurrency(), debtorId, creditorId).add(split.getValue(), false);
+                    }
+                }
+            }
+            return sums;
+        }
+    }
+
+    private static final class SettlementTask extends RecursiveTask<EdgeSums> {
+        private static final long serialVersionUID = 1L;
+
+        private final Settlement[] settlements;
+        private final int from;
+        private final int to;
+
+        SettlementTask(Settlement[] settlements, int from, int to) {
+            this.settlements = settlements;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected EdgeSums compute() {
+            if (to - from > SETTLEMENTS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                SettlementTask left = new SettlementTask(settlements, from, middle);
+                left.fork();
+                EdgeSums right = new SettlementTask(settlements, middle, to).compute();
+                return left.join().mergeWith(right);
+            }
+            EdgeSums sums = new EdgeSums();
+            for (int i = from; i < to; i++) {
+                Settlement settlement = settlements[i];
+                sums.edge(settlement.getCurrency(), settlement.getFromUserId(), settlement.getToUserId())
+                        .add(settlement.getAmount(), true);
+            }
+            return sums;
+        }
+    }
+
+    private static final class ArchiveSegmentTask extends RecursiveTask<EdgeSums> {
+        private static final long serialVersionUID = 1L;
+
+        private final ExpenseArchive archive;
+        private final int segment;
+
+        ArchiveSegmentTask(ExpenseArchive archive, int segment) {
+            this.archive = archive;
+            this.segment = segment;
+        }
+
+        @Override
+        protected EdgeSums compute() {
+            // Sum on dictionary indices first; ids are only resolved once per distinct edge
+            Map<Long, long[]> byIndex = new HashMap<>();
+            archive.forEachShare(segment, (debtorIndex, creditorIndex, shareMinor) ->
+                    byIndex.computeIfAbsent(((long) debtorIndex << 32) | creditorIndex, k -> new long[1])[0] += shareMinor);
+
+            EdgeSums sums = new EdgeSums();
+            for (Map.Entry<Long, long[]> entry : byIndex.entrySet()) {
+                long key = entry.getKey();
+                sums.edge(Expense.DEFAULT_CURRENCY, archive.getUserId((int) (key >>> 32)), archive.getUserId((int) key))
+                        .minor += entry.getValue()[0];
+            }
+            return sums;
+        }
+    }
+
+    private static final class MergeTask extends RecursiveTask<EdgeSums> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<RecursiveTask<EdgeSums>> tasks;
+        private final int from;
+        private final int to;
+
+        MergeTask(List<RecursiveTask<EdgeSums>> tasks, int from, int to) {
+            this.tasks = tasks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected EdgeSums compute() {
+            if (to - from == 1) {
+                return tasks.get(from).invoke();
+            }
+            int middle = (from + to) >>> 1;
+            MergeTask left = new MergeTask(tasks, from, middle);
+            left.fork();
+            EdgeSums right = new MergeTask(tasks, middle, to).compute();
+            return left.join().mergeWith(right);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package splitwise.service;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ReconciliationReport {
+    private final List<BalanceDrift> drifts;
+    private final long expensesScanned;
+    private final long archivedExpensesScanned;
+    private final long settlementsScanned;
+    private final int edgesCompared;
+    private final boolean repaired;
+    private final long elapsedNanos;
+
+    ReconciliationReport(List<BalanceDrift> drifts,
+                         long expensesScanned,
+                         long archivedExpensesScanned,
+                         long settlementsScanned,
+                         int edgesCompared,
+                         boolean repaired,
+                         long elapsedNanos) {
+        this.drifts = Collections.unmodifiableList(drifts);
+        this.expensesScanned = expensesScanned;
+        this.archivedExpensesScanned = archivedExpensesScanned;
+        this.settlementsScanned = settlementsScanned;
+        this.edgesCompared = edgesCompared;
+        this.repaired = repaired;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<BalanceDrift> getDrifts() {
+        return drifts;
+    }
+
+    public boolean isConsistent() {
+        return drifts.isEmpty();
+    }
+
+    public long getExpensesScanned() {
+        return expensesScanned;
+    }
+
+    public long getArchivedExpensesScanned() {
+        return archivedExpensesScanned;
+    }
+
+    public long getSettlementsScanned() {
+        return settlementsScanned;
+    }
+
+    public int getEdgesCompared() {
+        return edgesCompared;
+    }
+
+    /**
+     * Whether the drifted edges were corrected in the live ledger.
+     */
+    public boolean isRepaired() {
+        return repaired;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
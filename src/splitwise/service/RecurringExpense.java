@@ -0,0 +1,110 @@
+package splitwise.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Period;
+
+/**
+ * A standing expense such as rent or a subscription, booked through a {@link SplitTemplate}
+ * every {@code period} starting at the first due date.
+ */
+public class RecurringExpense {
+    private final String id;
+    private final SplitTemplate template;
+    private final String description;
+    private final BigDecimal amount;
+    private final String paidByUserId;
+    private final LocalDate firstDueDate;
+    private final Period period;
+    private final LocalDate endDate;
+    private int occurrencesBooked;
+    private RuntimeException lastFailure;
+
+    RecurringExpense(String id,
+                     SplitTemplate template,
+                     String description,
+                     BigDecimal amount,
+                     String paidByUserId,
+                     LocalDate firstDueDate,
+                     Period period,
+                     LocalDate endDate) {
+        this.id = id;
+        this.template = template;
+        this.description = description;
+        this.amount = amount;
+        this.paidByUserId = paidByUserId;
+        this.firstDueDate = firstDueDate;
+        this.period = period;
+        this.endDate = endDate;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public SplitTemplate getTemplate() {
+        return template;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getPaidByUserId() {
+        return paidByUserId;
+    }
+
+    public Period getPeriod() {
+        return period;
+    }
+
+    /**
+     * Last date an occurrence may fall on, or {@code null} if the schedule is open-ended.
+     */
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * Date of the next occurrence that has not been booked yet, or {@code null} once the
+     * schedule has ended. Computed from the first due date so month-end dates do not drift.
+     */
+    public LocalDate getNextDueDate() {
+        return occurrenceDate(occurrencesBooked);
+    }
+
+    /**
+     * Date of the occurrence with the given zero-based index, or {@code null} if it falls after
+     * the end date.
+     */
+    LocalDate occurrenceDate(int index) {
+        LocalDate date = firstDueDate.plus(period.multipliedBy(index));
+        return endDate != null && date.isAfter(endDate) ? null : date;
+    }
+
+    public int getOccurrencesBooked() {
+        return occurrencesBooked;
+    }
+
+    /**
+     * Why the next occurrence could not be booked on the last run, for example because the payer
+     * left the group, or {@code null} if it was booked. Failed occurrences stay due and are
+     * retried on the next run.
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    void advance() {
+        occurrencesBooked++;
+        lastFailure = null;
+    }
+
+    void recordFailure(RuntimeException failure) {
+        lastFailure = failure;
+    }
+}
@@ -0,0 +1,143 @@
+package splitwise.service;
+
+import splitwise.model.Expense;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Books due occurrences of recurring expenses. All occurrences due at the time of a call,
+ * including any missed while the scheduler was not run, are prepared from their templates and
+ * committed in batches with a single ledger update per batch. The clock is injected so tests
+ * can move time explicitly.
+ *
+ * <p>Not thread-safe. Call it from one thread at a time, and only while nothing else writes to
+ * the {@link ExpenseService} or its {@link BalanceService}: it commits through them directly, so
+ * run it under the same lock or on the same thread as the application's other writes.
+ */
+public class RecurringExpenseScheduler {
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final ExpenseService expenseService;
+    private final Clock clock;
+    private final int batchSize;
+    private final Map<String, RecurringExpense> recurringExpenses = new LinkedHashMap<>();
+    private int recurringIdCounter = 1;
+
+    public RecurringExpenseScheduler(ExpenseService expenseService, Clock clock) {
+        this(expenseService, clock, DEFAULT_BATCH_SIZE);
+    }
+
+    public RecurringExpenseScheduler(ExpenseService expenseService, Clock clock, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.expenseService = Objects.requireNonNull(expenseService, "expenseService must not be null");
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param endDate last date an occurrence may fall on, or {@code null} for no end
+     */
+    public RecurringExpense schedule(SplitTemplate template,
+                                     String description,
+                                     BigDecimal amount,
+                                     String paidByUserId,
+                                     LocalDate firstDueDate,
+                                     Period period,
+                                     LocalDate endDate) {
+        Objects.requireNonNull(template, "template must not be null");
+        Objects.requireNonNull(amount, "amount must not be null");
+        Objects.requireNonNull(firstDueDate, "firstDueDate must not be null");
+        Objects.requireNonNull(period, "period must not be null");
+        if (period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        // Validate payer and amount now rather than on the first due date
+        expenseService.validateTemplatedExpense(template, amount, paidByUserId);
+
+        String id = "REC" + recurringIdCounter++;
+        RecurringExpense recurring = new RecurringExpense(
+                id, template, description, amount, paidByUserId, firstDueDate, period, endDate);
+        recurringExpenses.put(id, recurring);
+        return recurring;
+    }
+
+    public void cancel(String recurringExpenseId) {
+        if (recurringExpenses.remove(recurringExpenseId) == null) {
+            throw new IllegalArgumentException("Recurring expense with ID " + recurringExpenseId + " not found");
+        }
+    }
+
+    public Optional<RecurringExpense> getRecurringExpenseById(String id) {
+        return Optional.ofNullable(recurringExpenses.get(id));
+    }
+
+    public Collection<RecurringExpense> getRecurringExpenses() {
+        return Collections.unmodifiableCollection(recurringExpenses.values());
+    }
+
+    /**
+     * Books every occurrence due on or before today according to the clock. A schedule whose
+     * occurrence cannot be prepared is skipped for this run and the failure is recorded on it
+     * (see {@link RecurringExpense#getLastFailure()}); the other schedules are still booked.
+     *
+     * @return the booked expenses, in due-date order per recurring expense
+     */
+    public List<Expense> materializeDue() {
+        LocalDate today = LocalDate.now(clock);
+        List<Expense> booked = new ArrayList<>();
+        List<Expense> batch = new ArrayList<>(batchSize);
+        List<RecurringExpense> sources = new ArrayList<>(batchSize);
+
+        for (RecurringExpense recurring : recurringExpenses.values()) {
+            // Occurrences are counted as booked only once their batch commits
+            int pending = 0;
+            LocalDate due;
+            while ((due = recurring.occurrenceDate(recurring.getOccurrencesBooked() + pending)) != null
+                    && !due.isAfter(today)) {
+                Expense expense;
+                try {
+                    expense = expenseService.prepareExpense(recurring.getTemplate(), recurring.getDescription(),
+                            recurring.getAmount(), recurring.getPaidByUserId());
+                } catch (RuntimeException e) {
+                    // Later occurrences would fail the same way; retry on the next run
+                    recurring.recordFailure(e);
+                    break;
+                }
+                batch.add(expense);
+                sources.add(recurring);
+                pending++;
+                if (batch.size() == batchSize) {
+                    commit(batch, sources, booked);
+                    pending = 0;
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            commit(batch, sources, booked);
+        }
+        return booked;
+    }
+
+    private void commit(List<Expense> batch, List<RecurringExpense> sources, List<Expense> booked) {
+        expenseService.commitExpenses(batch);
+        for (RecurringExpense source : sources) {
+            source.advance();
+        }
+        booked.addAll(batch);
+        batch.clear();
+        sources.clear();
+    }
+}
@@ -0,0 +1,108 @@
+package splitwise.service;
+
+import splitwise.model.EqualSplit;
+import splitwise.model.ExactSplit;
+import splitwise.model.Group;
+import splitwise.model.PercentSplit;
+import splitwise.model.Split;
+import splitwise.model.SplitType;
+import splitwise.model.User;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * A validated, reusable split for one group. Participants are resolved and checked once,
+ * and percentages are turned into ratios up front, so applying the template to an amount
+ * only computes the shares. Expenses from a template are booked in the currency it was created
+ * with. Create with {@link ExpenseService#createSplitTemplate}.
+ */
+public class SplitTemplate {
+    private final Group group;
+    private final SplitType splitType;
+    private final Currency currency;
+    private final User[] participants;
+    // EXACT: fixed amounts; PERCENT: percent / 100; EQUAL: unused
+    private final BigDecimal[] values;
+    private final BigDecimal participantCount;
+    private final BigDecimal exactTotal;
+
+    SplitTemplate(Group group, SplitType splitType, Currency currency, List<Split> splits) {
+        this.group = group;
+        this.splitType = splitType;
+        this.currency = currency;
+        this.participants = new User[splits.size()];
+        this.values = new BigDecimal[splits.size()];
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < splits.size(); i++) {
+            Split split = splits.get(i);
+            participants[i] = split.getUser();
+            if (splitType == SplitType.PERCENT) {
+                values[i] = split.getValue().movePointLeft(2);
+            } else if (splitType == SplitType.EXACT) {
+                values[i] = split.getValue();
+                total = total.add(split.getValue());
+            }
+        }
+        this.participantCount = BigDecimal.valueOf(participants.length);
+        this.exactTotal = total;
+    }
+
+    public Group getGroup() {
+        return group;
+    }
+
+    public SplitType getSplitType() {
+        return splitType;
+    }
+
+    /**
+     * Currency of the expenses booked from this template, and of its EXACT amounts.
+     */
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public int getParticipantCount() {
+        return participants.length;
+    }
+
+    /**
+     * Computes fresh splits for the amount, rounded the same way as {@code addExpense}.
+     */
+    List<Split> apply(BigDecimal amount) {
+        int scale = Math.max(0, currency.getDefaultFractionDigits());
+        List<Split> splits = new ArrayList<>(participants.length);
+        switch (splitType) {
+            case EQUAL:
+                BigDecimal perPerson = amount.divide(participantCount, scale, RoundingMode.HALF_UP);
+                for (User participant : participants) {
+                    Split split = new EqualSplit(participant);
+                    split.setValue(perPerson);
+                    splits.add(split);
+                }
+                break;
+            case EXACT:
+                if (exactTotal.compareTo(amount) != 0) {
+                    throw new IllegalArgumentException(
+                            "Sum of exact splits (" + exactTotal + ") does not equal total amount (" + amount + ")");
+                }
+                for (int i = 0; i < participants.length; i++) {
+                    splits.add(new ExactSplit(participants[i], values[i]));
+                }
+                break;
+            case PERCENT:
+                for (int i = 0; i < participants.length; i++) {
+                    splits.add(new PercentSplit(participants[i],
+                            amount.multiply(values[i]).setScale(scale, RoundingMode.HALF_UP)));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown split type: " + splitType);
+        }
+        return splits;
+    }
+}
@@ -1,24 +1,53 @@
 package splitwise.service;
 
+import splitwise.cache.LoadingCache;
 import splitwise.model.User;
+import splitwise.repository.UserRepository;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
 public class UserService {
     private final Map<String, User> users = new HashMap<>();
+    private final UserRepository repository;
+    private final LoadingCache<String, User> cache;
+
+    public UserService() {
+        this.repository = null;
+        this.cache = null;
+    }
+
+    /**
+     * Repository-backed mode: users are loaded on first access and kept in an LRU cache of at most
+     * {@code cacheSize} entries instead of being held in memory all at once.
+     */
+    public UserService(UserRepository repository, int cacheSize) {
+        this.repository = repository;
+        this.cache = new LoadingCache<>(cacheSize,
+                id -> repository.findById(id).orElse(null),
+                repository::findAllByIds);
+    }
 
     public User createUser(String id, String name) {
-        if (users.containsKey(id)) {
+        if (getUserById(id).isPresent()) {
             throw new IllegalArgumentException("User with ID " + id + " already exists");
         }
         User user = new User(id, name);
-        users.put(id, user);
+        if (repository != null) {
+            repository.save(user);
+            cache.put(id, user);
+        } else {
+            users.put(id, user);
+        }
         return user;
     }
 
     public Optional<User> getUserById(String id) {
+        if (cache != null) {
+            return Optional.ofNullable(cache.get(id));
+        }
         return Optional.ofNullable(users.get(id));
     }
 
@@ -27,8 +56,38 @@ public class UserService {
                 .orElseThrow(() -> new IllegalArgumentException("User with ID " + id + " not found"));
     }
 
+    /**
+     * Looks up many users at once; in repository-backed mode all cache misses are loaded with a
+     * single batched query. Unknown ids are absent from the result.
+     */
+    public Map<String, User> getUsersByIds(Collection<String> ids) {
+        if (cache != null) {
+            return cache.getAll(ids);
+        }
+        Map<String, User> result = new HashMap<>();
+        for (String id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                result.put(id, user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * In repository-backed mode this reads every user from the database.
+     */
     public Map<String, User> getAllUsers() {
+        if (repository != null) {
+            return repository.findAll();
+        }
         return new HashMap<>(users);
     }
-}
 
+    /**
+     * The user cache, for hit-rate and eviction statistics; empty in in-memory mode.
+     */
+    public Optional<LoadingCache<String, User>> getCache() {
+        return Optional.ofNullable(cache);
+    }
+}